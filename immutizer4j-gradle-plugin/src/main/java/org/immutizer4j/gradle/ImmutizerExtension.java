@@ -0,0 +1,28 @@
+package org.immutizer4j.gradle;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the validation manifest, e.g.
+ * <pre>
+ * immutizer {
+ *     strict = false
+ *     safeTypes = ['org.joda.time.DateTime']
+ * }
+ * </pre>
+ * They have to match the settings of the Immutizer used at runtime, otherwise the manifest is ignored
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Data
+public class ImmutizerExtension {
+
+    // may allow arrays to pass or not (no by default)
+    private boolean strict = true;
+
+    // fully qualified names of additional types that we were told are immutable
+    private List<String> safeTypes = new ArrayList<>();
+}
@@ -0,0 +1,69 @@
+package org.immutizer4j.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.jvm.tasks.Jar;
+import org.immutizer4j.ManifestGenerator;
+import org.immutizer4j.ValidationManifest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Validates all the compiled classes of the main source set during the build (in parallel)
+ * and packages their verdicts into the jar, so that Immutizer does not need to walk them at startup:
+ * <pre>
+ * apply plugin: 'org.immutizer4j'
+ * </pre>
+ * The generator runs on the runtime classpath of the project, so immutizer4j itself has to be on it.
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class ImmutizerPlugin implements Plugin<Project> {
+
+    static final String EXTENSION = "immutizer";
+    static final String TASK = "immutizerManifest";
+
+    @Override
+    public void apply(Project project) {
+        ImmutizerExtension extension = project.getExtensions().create(EXTENSION, ImmutizerExtension.class);
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            SourceSet main = project.getConvention().getPlugin(JavaPluginConvention.class)
+                    .getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            File outputDir = new File(project.getBuildDir(), "immutizer4j");
+            File manifest = new File(outputDir, ValidationManifest.LOCATION);
+
+            JavaExec task = project.getTasks().create(TASK, JavaExec.class);
+            task.setGroup("build");
+            task.setDescription("Precomputes the Immutizer verdicts of all the compiled classes");
+            task.dependsOn(main.getClassesTaskName());
+            task.setClasspath(main.getOutput().getClassesDirs()
+                    .plus(project.getConfigurations().getByName(main.getRuntimeClasspathConfigurationName())));
+            task.setMain(ManifestGenerator.class.getName());
+            task.getInputs().property("strict", (Callable<Boolean>) extension::isStrict);
+            task.getInputs().property("safeTypes", (Callable<String>) () -> String.join(",", extension.getSafeTypes()));
+            task.getOutputs().dir(outputDir);
+
+            // settings are only known once the build script has been evaluated
+            task.doFirst(t -> {
+                List<String> args = new ArrayList<>();
+                args.add("--strict=" + extension.isStrict());
+                args.add("--safeTypes=" + String.join(",", extension.getSafeTypes()));
+                args.add(manifest.getAbsolutePath());
+                main.getOutput().getClassesDirs().forEach(dir -> args.add(dir.getAbsolutePath()));
+                task.setArgs(args);
+            });
+
+            Jar jar = (Jar) project.getTasks().getByName(JavaPlugin.JAR_TASK_NAME);
+            jar.dependsOn(task);
+            jar.from(outputDir);
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package org.immutizer4j.processor;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import org.immutizer4j.Immutable;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.VerifiedTypeRegistry;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Validates all the types annotated with @Immutable at compile time, using the same rules as Immutizer.
+ * Any violation fails the build. All the verified types are written into a generated VerifiedTypeRegistry,
+ * so that Immutizer can answer for them at runtime without walking them via reflection.
+ *
+ * Supported options:
+ * <ul>
+ *     <li>immutizer4j.strict - false to allow arrays of immutable types (true by default)</li>
+ *     <li>immutizer4j.safeTypes - comma separated list of additional safe types</li>
+ *     <li>immutizer4j.registry - fully qualified name of the generated registry class, unique per module.
+ *     Without it the types still get verified, but no registry is generated</li>
+ * </ul>
+ *
+ * The registry lists the types verified in one compilation, so the processor is registered as aggregating
+ * for Gradle incremental builds: Gradle then hands it all the annotated types again on every recompile.
+ * Other incremental compilers that only pass the changed sources produce an incomplete registry,
+ * which only means the missing types get walked at runtime.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@SupportedAnnotationTypes(ImmutizerProcessor.IMMUTABLE)
+@SupportedOptions({ImmutizerProcessor.OPTION_STRICT, ImmutizerProcessor.OPTION_SAFE_TYPES, ImmutizerProcessor.OPTION_REGISTRY})
+public class ImmutizerProcessor extends AbstractProcessor {
+
+    static final String IMMUTABLE = "org.immutizer4j.Immutable";
+    static final String OPTION_STRICT = "immutizer4j.strict";
+    static final String OPTION_SAFE_TYPES = "immutizer4j.safeTypes";
+    static final String OPTION_REGISTRY = "immutizer4j.registry";
+
+    private static final String NEWLINE = "\n ";
+    private static final String SERVICE_FILE = "META-INF/services/" + VerifiedTypeRegistry.class.getName();
+
+    private boolean strict;
+    private ImmutableSet<String> customSafeTypes;
+    private TypeChecker checker;
+
+    // binary names of the types verified so far, across all rounds
+    private final Set<String> verifiedTypes = new TreeSet<>();
+    // and their elements, the registry gets generated from them
+    private final List<Element> originatingElements = new ArrayList<>();
+    private String registryName;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        Map<String,String> options = processingEnv.getOptions();
+        strict = !"false".equalsIgnoreCase(options.get(OPTION_STRICT));
+        customSafeTypes = ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings()
+                .split(options.getOrDefault(OPTION_SAFE_TYPES, "")));
+        registryName = options.get(OPTION_REGISTRY);
+
+        // the same default safe types Immutizer uses at runtime, plus the custom ones
+        Set<String> safeTypes = Immutizer.builder().useVerifiedTypeRegistries(false).build().getSafeTypes().stream()
+                .map(Class::getName)
+                .collect(Collectors.toSet());
+        safeTypes.addAll(customSafeTypes);
+        for(String safeType : customSafeTypes) {
+            if (processingEnv.getElementUtils().getTypeElement(safeType) == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unknown safe type " + safeType);
+            }
+        }
+
+        checker = new TypeChecker(processingEnv.getTypeUtils(), processingEnv.getElementUtils(), strict, safeTypes);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Messager messager = processingEnv.getMessager();
+
+        for(Element element : roundEnv.getElementsAnnotatedWith(Immutable.class)) {
+            TypeElement type = (TypeElement) element;
+            Set<TypeChecker.Violation> violations = checker.check(type);
+
+            if (violations.isEmpty()) {
+                verifiedTypes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+                originatingElements.add(type);
+            } else {
+                // javac reports only one error per element, so all of them go into a single message
+                messager.printMessage(Diagnostic.Kind.ERROR, violations.stream()
+                        .map(TypeChecker.Violation::toString)
+                        .collect(Collectors.joining(NEWLINE, "Immutability violation: ", "")), type);
+            }
+        }
+
+        if (roundEnv.processingOver() && !verifiedTypes.isEmpty() && !roundEnv.errorRaised()) {
+            if (registryName != null) {
+                writeRegistry();
+            } else {
+                // a default name could clash with the registry of another module in the same package
+                messager.printMessage(Diagnostic.Kind.WARNING, "No " + VerifiedTypeRegistry.class.getSimpleName() +
+                        " generated, set -A" + OPTION_REGISTRY + " to a class name unique to the module");
+            }
+        }
+
+        return true;
+    }
+
+    // generates the registry class and registers it for ServiceLoader
+    private void writeRegistry() {
+        Filer filer = processingEnv.getFiler();
+        int lastDot = registryName.lastIndexOf('.');
+        String packageName = (lastDot > 0) ? registryName.substring(0, lastDot) : null;
+        String className = registryName.substring(lastDot + 1);
+
+        try {
+            try (Writer writer = filer.createSourceFile(registryName, originatingElements.toArray(new Element[0])).openWriter()) {
+                if (packageName != null) {
+                    writer.write("package " + packageName + ";\n\n");
+                }
+                writer.write("/**\n * Types verified as immutable at compile time, generated by " +
+                        getClass().getName() + "\n */\n");
+                writer.write("public final class " + className + " implements " + VerifiedTypeRegistry.class.getName() + " {\n\n");
+                writer.write("    private static final java.util.Set<String> VERIFIED_TYPES = " + setOf(verifiedTypes) + ";\n");
+                writer.write("    private static final java.util.Set<String> SAFE_TYPES = " + setOf(customSafeTypes) + ";\n\n");
+                writer.write("    @Override\n    public java.util.Set<String> getVerifiedTypes() {\n        return VERIFIED_TYPES;\n    }\n\n");
+                writer.write("    @Override\n    public boolean isStrict() {\n        return " + strict + ";\n    }\n\n");
+                writer.write("    @Override\n    public java.util.Set<String> getSafeTypes() {\n        return SAFE_TYPES;\n    }\n");
+                writer.write("}\n");
+            }
+
+            FileObject services = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = services.openWriter()) {
+                writer.write(registryName + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to generate " + registryName + ": " + e.getMessage());
+        }
+    }
+
+    private static String setOf(Set<String> values) {
+        return values.stream()
+                .map(v -> "\"" + v + "\"")
+                .collect(Collectors.joining(", ", "com.google.common.collect.ImmutableSet.of(", ")"));
+    }
+}
@@ -0,0 +1,298 @@
+package org.immutizer4j.processor;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+import org.immutizer4j.ViolationType;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the same rules as Immutizer, but on the compiler's view of the types instead of reflection
+ *
+ * @author Jacek Furmankiewicz
+ */
+class TypeChecker {
+
+    private final Types types;
+    private final Elements elements;
+    private final boolean strict;
+
+    private final List<TypeMirror> safeTypes;
+    private final TypeMirror collectionType;
+    private final TypeMirror objectType;
+
+    // everything found out about each type so far, by binary name
+    private final Map<String,TypeNode> nodes = new HashMap<>();
+    private final Map<String,Boolean> validity = new HashMap<>();
+
+    TypeChecker(Types types, Elements elements, boolean strict, Collection<String> safeTypeNames) {
+        this.types = types;
+        this.elements = elements;
+        this.strict = strict;
+
+        ImmutableList.Builder<TypeMirror> safe = ImmutableList.builder();
+        for(String name : safeTypeNames) {
+            TypeElement element = elements.getTypeElement(name);
+            if (element != null) {
+                safe.add(types.erasure(element.asType()));
+            }
+        }
+        this.safeTypes = safe.build();
+        this.collectionType = types.erasure(elements.getTypeElement(Collection.class.getName()).asType());
+        this.objectType = elements.getTypeElement(Object.class.getName()).asType();
+    }
+
+    /**
+     * Validates the type and everything reachable from it
+     * @return All the violations, empty if the type is immutable
+     */
+    Set<Violation> check(TypeElement root) {
+        // direct field references bring in all the violations of their types
+        Set<Violation> violations = new LinkedHashSet<>();
+        List<TypeNode> reached = new ArrayList<>();
+        Set<String> visited = new LinkedHashSet<>();
+        Deque<TypeElement> worklist = new ArrayDeque<>();
+        worklist.add(root);
+
+        while (!worklist.isEmpty()) {
+            TypeElement type = worklist.poll();
+            if (visited.add(binaryName(type))) {
+                TypeNode node = analyze(type);
+                reached.add(node);
+                violations.addAll(node.getViolations());
+                worklist.addAll(node.getReferences());
+            }
+        }
+
+        // collections only get flagged if the type stored in them is not immutable
+        for(TypeNode node : reached) {
+            for(ElementReference reference : node.getElementReferences()) {
+                if (!isValid(reference.getType())) {
+                    violations.add(new Violation(reference.getDeclaringType(), reference.getField(),
+                            ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION));
+                }
+            }
+        }
+
+        return violations;
+    }
+
+    // a type is valid if there is no violation anywhere in the graph reachable from it
+    private boolean isValid(TypeElement root) {
+        return validity.computeIfAbsent(binaryName(root), name -> findValidity(root));
+    }
+
+    private boolean findValidity(TypeElement root) {
+        Set<String> visited = new LinkedHashSet<>();
+        Deque<TypeElement> worklist = new ArrayDeque<>();
+        worklist.add(root);
+
+        while (!worklist.isEmpty()) {
+            TypeElement type = worklist.poll();
+            if (visited.add(binaryName(type))) {
+                TypeNode node = analyze(type);
+                if (!node.getViolations().isEmpty()) {
+                    return false;
+                }
+                worklist.addAll(node.getReferences());
+                node.getElementReferences().forEach(r -> worklist.add(r.getType()));
+            }
+        }
+        return true;
+    }
+
+    // validates all the fields in the type hierarchy, referenced types are only recorded
+    private TypeNode analyze(TypeElement type) {
+        TypeNode node = nodes.get(binaryName(type));
+        if (node == null) {
+            node = new TypeNode(binaryName(type));
+
+            // fields are seen as members of the type itself, so the type variables bound by it get resolved
+            DeclaredType typeMirror = (DeclaredType) type.asType();
+            TypeElement current = type;
+            while (current != null && !types.isSameType(current.asType(), objectType)) {
+                for(Element element : current.getEnclosedElements()) {
+                    if (element.getKind() == ElementKind.FIELD) {
+                        analyzeField(binaryName(current), (VariableElement) element, types.asMemberOf(typeMirror, element), node);
+                    }
+                }
+
+                // move up the class hierarchy level
+                TypeMirror superclass = current.getSuperclass();
+                current = (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) types.asElement(superclass) : null;
+            }
+
+            nodes.put(node.getName(), node);
+        }
+        return node;
+    }
+
+    private void analyzeField(String declaringType, VariableElement field, TypeMirror type, TypeNode node) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.STATIC)) {
+            return;
+        }
+
+        String name = field.getSimpleName().toString();
+        if (!modifiers.contains(Modifier.FINAL)) {
+            node.addViolation(declaringType, name, ViolationType.NON_FINAL_FIELD);
+        }
+
+        // collections, the same as at runtime the whole tree of stored types has to be known
+        if (type.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(type), collectionType)) {
+            if (!isSafeType(type)) {
+                node.addViolation(declaringType, name, ViolationType.MUTABLE_TYPE);
+            }
+
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (arguments.isEmpty()) {
+                node.addViolation(declaringType, name, ViolationType.GENERIC_TYPE_WITH_WILDCARD);
+            }
+            for(TypeMirror argument : arguments) {
+                analyzeElement(declaringType, name, argument, node);
+            }
+        }
+
+        // arrays (can be allowed if we are not running in strict mode)
+        TypeMirror actualType = type;
+        if (type.getKind() == TypeKind.ARRAY) {
+            if (strict) {
+                node.addViolation(declaringType, name, ViolationType.MUTABLE_ARRAY);
+            }
+            actualType = ((ArrayType) type).getComponentType();
+        }
+
+        // references to generic types get erased, there is no way to find out what they are
+        if (actualType.getKind() == TypeKind.TYPEVAR) {
+            actualType = types.erasure(actualType);
+            if (types.isSameType(actualType, objectType)) {
+                node.addViolation(declaringType, name, ViolationType.UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE);
+            }
+        }
+
+        if (actualType.getKind() == TypeKind.DECLARED && !isSafeType(actualType)) {
+            node.addReference((TypeElement) types.asElement(actualType));
+        }
+    }
+
+    // type stored in a collection, nested collections and arrays get walked down to the actual types
+    private void analyzeElement(String declaringType, String name, TypeMirror type, TypeNode node) {
+        if (type.getKind().isPrimitive()) {
+            return;
+        }
+
+        if (type.getKind() == TypeKind.ARRAY) {
+            if (strict) {
+                node.addViolation(declaringType, name, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION);
+            }
+            analyzeElement(declaringType, name, ((ArrayType) type).getComponentType(), node);
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            TypeElement element = (TypeElement) types.asElement(type);
+
+            if (arguments.isEmpty() && !element.getTypeParameters().isEmpty()) {
+                // raw type, no way to tell what is stored in it
+                node.addViolation(declaringType, name, ViolationType.GENERIC_TYPE_WITH_WILDCARD);
+            } else if (types.isAssignable(types.erasure(type), collectionType)) {
+                if (!isSafeType(type)) {
+                    node.addViolation(declaringType, name, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION);
+                }
+            } else if (!isSafeType(type)) {
+                node.addElementReference(declaringType, name, element);
+            }
+
+            for(TypeMirror argument : arguments) {
+                analyzeElement(declaringType, name, argument, node);
+            }
+        } else {
+            // wildcards and type variables not bound by the class hierarchy
+            node.addViolation(declaringType, name, ViolationType.GENERIC_TYPE_WITH_WILDCARD);
+        }
+    }
+
+    // validates if the type can be safely assigned to any of the safe types
+    private boolean isSafeType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+
+        TypeMirror erasure = types.erasure(type);
+        for(TypeMirror safeType : safeTypes) {
+            if (types.isAssignable(erasure, safeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String binaryName(TypeElement type) {
+        return elements.getBinaryName(type).toString();
+    }
+
+    /**
+     * Single violation, reported the same way as ValidationError at runtime
+     */
+    @Value
+    static class Violation {
+        private String type;
+        private String fieldName;
+        private ViolationType violationType;
+
+        @Override
+        public String toString() {
+            return type + "." + fieldName + " : " + violationType;
+        }
+    }
+
+    /**
+     * Collection field and the type stored in it
+     */
+    @Value
+    private static class ElementReference {
+        private String declaringType;
+        private String field;
+        private TypeElement type;
+    }
+
+    /**
+     * Everything found out about a single type
+     */
+    @Value
+    private static class TypeNode {
+        private String name;
+        private List<Violation> violations = new ArrayList<>();
+        private List<TypeElement> references = new ArrayList<>();
+        private List<ElementReference> elementReferences = new ArrayList<>();
+
+        void addViolation(String type, String fieldName, ViolationType violationType) {
+            violations.add(new Violation(type, fieldName, violationType));
+        }
+
+        void addReference(TypeElement type) {
+            references.add(type);
+        }
+
+        void addElementReference(String declaringType, String field, TypeElement type) {
+            elementReferences.add(new ElementReference(declaringType, field, type));
+        }
+    }
+}
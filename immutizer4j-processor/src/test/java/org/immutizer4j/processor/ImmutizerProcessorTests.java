@@ -0,0 +1,144 @@
+package org.immutizer4j.processor;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for compile time validation of types annotated with @Immutable
+ * @author Jacek Furmankiewicz
+ */
+public class ImmutizerProcessorTests {
+
+    private File output;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void setUp() {
+        output = Files.createTempDir();
+        diagnostics = new DiagnosticCollector<>();
+    }
+
+    @Test
+    public void testImmutableTypeGetsRegistered() throws Exception {
+        boolean success = compile(ImmutableList.of("-Aimmutizer4j.registry=sample.Registry"),
+                source("sample.Money", "package sample; @org.immutizer4j.Immutable public final class Money {" +
+                        " private final long amount; private final String currency; private final Rate rate;" +
+                        " private final com.google.common.collect.ImmutableList<Rate> history;" +
+                        " public Money() { amount = 0; currency = null; rate = null; history = null; } }"),
+                source("sample.Rate", "package sample; public class Rate { private final double value = 1; }"));
+
+        assertTrue(errors().toString(), success);
+        assertTrue(new File(output, "sample/Registry.class").exists());
+        assertEquals("sample.Registry", Files.asCharSource(
+                new File(output, "META-INF/services/org.immutizer4j.VerifiedTypeRegistry"), StandardCharsets.UTF_8).read().trim());
+    }
+
+    @Test
+    public void testNoRegistryWithoutName() {
+        boolean success = compile(ImmutableList.of(),
+                source("sample.Money", "package sample; @org.immutizer4j.Immutable public final class Money {" +
+                        " private final long amount = 0; }"));
+
+        // still verified, but a default name could clash with another module
+        assertTrue(errors().toString(), success);
+        assertFalse(new File(output, "META-INF/services/org.immutizer4j.VerifiedTypeRegistry").exists());
+        assertTrue(diagnostics.getDiagnostics().stream()
+                .anyMatch(d -> d.getKind() == Diagnostic.Kind.WARNING && d.getMessage(null).contains("immutizer4j.registry")));
+    }
+
+    @Test
+    public void testViolationsFailTheBuild() {
+        boolean success = compile(ImmutableList.of(),
+                source("sample.Account", "package sample; @org.immutizer4j.Immutable public class Account {" +
+                        " private String owner; private final java.util.List<String> tags = null;" +
+                        " private final com.google.common.collect.ImmutableList<Entry> entries = null;" +
+                        " private final int[] totals = null; }"),
+                source("sample.Entry", "package sample; public class Entry { private int amount; }"));
+
+        assertFalse(success);
+        List<String> errors = errors();
+        assertEquals(errors.toString(), 1, errors.size());
+
+        // all the violations of a type get reported in a single error
+        List<String> lines = Splitter.on('\n').trimResults().splitToList(errors.get(0));
+        assertEquals(errors.toString(), 4, lines.size());
+        assertTrue(errors.toString(), lines.contains("Immutability violation: sample.Account.owner : NON_FINAL_FIELD"));
+        assertTrue(errors.toString(), lines.contains("sample.Account.tags : MUTABLE_TYPE"));
+        assertTrue(errors.toString(), lines.contains("sample.Account.entries : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+        assertTrue(errors.toString(), lines.contains("sample.Account.totals : MUTABLE_ARRAY"));
+    }
+
+    @Test
+    public void testNonStrictModeAndGenerics() {
+        boolean success = compile(ImmutableList.of("-Aimmutizer4j.strict=false"),
+                source("sample.Holder", "package sample; @org.immutizer4j.Immutable public class Holder<T> {" +
+                        " private final String[] names = null; private final T value = null; }"));
+
+        assertFalse(success);
+        assertEquals(ImmutableList.of("Immutability violation: sample.Holder.value : UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE"),
+                errors());
+    }
+
+    @Test
+    public void testBoundTypeVariablesAndNestedCollections() {
+        boolean success = compile(ImmutableList.of("-Aimmutizer4j.registry=sample.Registry"),
+                source("sample.Base", "package sample; public abstract class Base<T> {" +
+                        " private final T value = null; private final com.google.common.collect.ImmutableList<T> values = null; }"),
+                source("sample.Prices", "package sample; @org.immutizer4j.Immutable public final class Prices" +
+                        " extends Base<Long> {" +
+                        " private final com.google.common.collect.ImmutableList<com.google.common.collect.ImmutableSet<String>> tags = null; }"),
+                source("sample.Groups", "package sample; @org.immutizer4j.Immutable public final class Groups {" +
+                        " private final com.google.common.collect.ImmutableList<java.util.List<String>> members = null; }"));
+
+        assertFalse(success);
+        assertEquals(ImmutableList.of("Immutability violation: sample.Groups.members : MUTABLE_TYPE_STORED_IN_COLLECTION"),
+                errors());
+    }
+
+    private boolean compile(List<String> options, JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = ImmutableList.<String>builder()
+                .add("-d", output.getAbsolutePath())
+                .add("-classpath", System.getProperty("java.class.path"))
+                .add("-processor", ImmutizerProcessor.class.getName())
+                .addAll(options)
+                .build();
+        return compiler.getTask(null, null, diagnostics, arguments, null, ImmutableList.copyOf(sources)).call();
+    }
+
+    private List<String> errors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
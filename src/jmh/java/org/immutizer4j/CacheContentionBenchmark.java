@@ -0,0 +1,68 @@
+package org.immutizer4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads reading cached results of the same types at the same time, for each of the cache implementations
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CacheContentionBenchmark {
+
+    @Param({"CONCURRENT_MAP", "CLASS_VALUE", "BOUNDED"})
+    public String cache;
+
+    private Immutizer immutizer;
+    private final List<Class<?>> types = SyntheticTypes.ALL;
+
+    @Setup
+    public void setUp() {
+        Immutizer.Builder builder = Immutizer.builder().violationReporter(ViolationReporter.NONE);
+        if ("BOUNDED".equals(cache)) {
+            builder.maximumCacheSize(10_000);
+        } else {
+            builder.cacheMode(CacheMode.valueOf(cache));
+        }
+        immutizer = builder.build();
+        immutizer.getValidationResults(types);
+    }
+
+    /**
+     * Every thread goes through all the types in its own order
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public ValidationResult cachedLookup(Cursor cursor) {
+        return immutizer.getValidationResult(types.get(cursor.next(types.size())));
+    }
+}
@@ -0,0 +1,50 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First validation of a type graph, with nothing cached in the Immutizer yet.
+ * The per class resolution of the generic field types is shared by all Immutizer instances,
+ * so this measures the walk itself, not the initial reflection
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColdWalkBenchmark {
+
+    @Benchmark
+    public ValidationResult deepGraph() {
+        return newImmutizer().getValidationResult(SyntheticTypes.DEEP);
+    }
+
+    @Benchmark
+    public ValidationResult wideGraph() {
+        return newImmutizer().getValidationResult(SyntheticTypes.WIDE);
+    }
+
+    @Benchmark
+    public ImmutableMap<Class<?>,ValidationResult> allTypesInParallel() {
+        return newImmutizer().getValidationResults(SyntheticTypes.ALL);
+    }
+
+    private static Immutizer newImmutizer() {
+        return Immutizer.builder()
+                .useVerifiedTypeRegistries(false)
+                .useValidationManifests(false)
+                .violationReporter(ViolationReporter.NONE)
+                .build();
+    }
+}
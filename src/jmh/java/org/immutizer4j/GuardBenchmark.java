@@ -0,0 +1,58 @@
+package org.immutizer4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a verified cache write compared to a plain one, by type and by instance
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GuardBenchmark {
+
+    private final ConcurrentMap<String,Object> plain = new ConcurrentHashMap<>();
+    private ConcurrentMap<String,Object> guarded;
+    private Immutizer immutizer;
+    private final Object value = new SyntheticTypes.Deep0();
+
+    @Setup
+    public void setUp() {
+        immutizer = Immutizer.builder().violationReporter(ViolationReporter.NONE).build();
+        guarded = immutizer.guard(new ConcurrentHashMap<>());
+    }
+
+    @Benchmark
+    public Object plainPut() {
+        return plain.put("key", value);
+    }
+
+    @Benchmark
+    public Object guardedPut() {
+        return guarded.put("key", value);
+    }
+
+    // the value is of a sealed class, so the instance check should not cost much more than the type one
+    @Benchmark
+    public Object sealedInstancePut() {
+        immutizer.verifyInstance(value);
+        return plain.put("key", value);
+    }
+}
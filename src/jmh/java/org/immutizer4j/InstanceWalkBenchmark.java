@@ -0,0 +1,61 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating live object graphs, where every object has to be looked into
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstanceWalkBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private Immutizer immutizer;
+    private SyntheticTypes.Holder list;
+    private ImmutableList<SyntheticTypes.Holder> collection;
+
+    @Setup
+    public void setUp() {
+        immutizer = Immutizer.builder().violationReporter(ViolationReporter.NONE).build();
+
+        ImmutableList.Builder<SyntheticTypes.Holder> builder = ImmutableList.builder();
+        SyntheticTypes.Holder next = null;
+        for (int i = 0; i < size; i++) {
+            next = new SyntheticTypes.Holder("value" + i, next);
+            builder.add(new SyntheticTypes.Holder(i, null));
+        }
+        list = next;
+        collection = builder.build();
+    }
+
+    @Benchmark
+    public ValidationResult linkedObjects() {
+        return immutizer.getInstanceValidationResult(list);
+    }
+
+    @Benchmark
+    public ValidationResult objectsInCollection() {
+        return immutizer.getInstanceValidationResult(collection);
+    }
+}
@@ -0,0 +1,61 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking a type that is not safe (the worst case, every safe type has to be looked at)
+ * against many custom safe types, memoized and not
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SafeTypeBenchmark {
+
+    @Param({"0", "16", "128"})
+    public int customSafeTypes;
+
+    private ImmutableSet<Class<?>> safeTypes;
+    private Immutizer immutizer;
+
+    @Setup
+    public void setUp() {
+        // array types of all the different dimensions, as a supply of many distinct classes
+        Class<?>[] custom = new Class<?>[customSafeTypes];
+        for (int i = 0; i < customSafeTypes; i++) {
+            custom[i] = Array.newInstance(Integer.class, new int[i + 1]).getClass();
+        }
+
+        immutizer = Immutizer.builder().safeTypes(custom).violationReporter(ViolationReporter.NONE).build();
+        safeTypes = immutizer.getSafeTypes();
+        immutizer.isSafeType(SyntheticTypes.WIDE);
+    }
+
+    @Benchmark
+    public boolean memoized() {
+        return immutizer.isSafeType(SyntheticTypes.WIDE);
+    }
+
+    @Benchmark
+    public boolean firstLookup() {
+        return SafeTypeIndex.of(safeTypes).test(SyntheticTypes.WIDE);
+    }
+}
@@ -0,0 +1,254 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Synthetic type graphs for the benchmarks: a deep chain of types referring to each other
+ * and a wide type referring to many independent ones
+ *
+ * @author Jacek Furmankiewicz
+ */
+final class SyntheticTypes {
+
+    private SyntheticTypes() {}
+
+    // root of a chain of 16 types
+    static final Class<?> DEEP = Deep0.class;
+    // root referring to 16 types directly
+    static final Class<?> WIDE = Wide.class;
+
+    static final class Deep0 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep1 next = null;
+    }
+
+    static final class Deep1 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep2 next = null;
+    }
+
+    static final class Deep2 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep3 next = null;
+    }
+
+    static final class Deep3 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep4 next = null;
+    }
+
+    static final class Deep4 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep5 next = null;
+    }
+
+    static final class Deep5 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep6 next = null;
+    }
+
+    static final class Deep6 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep7 next = null;
+    }
+
+    static final class Deep7 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep8 next = null;
+    }
+
+    static final class Deep8 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep9 next = null;
+    }
+
+    static final class Deep9 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep10 next = null;
+    }
+
+    static final class Deep10 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep11 next = null;
+    }
+
+    static final class Deep11 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep12 next = null;
+    }
+
+    static final class Deep12 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep13 next = null;
+    }
+
+    static final class Deep13 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep14 next = null;
+    }
+
+    static final class Deep14 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final Deep15 next = null;
+    }
+
+    static final class Deep15 {
+        private final int value = 0;
+        private final ImmutableList<String> names = null;
+        private final String next = null;
+    }
+
+    static final class Wide {
+        private final Leaf0 leaf0 = null;
+        private final Leaf1 leaf1 = null;
+        private final Leaf2 leaf2 = null;
+        private final Leaf3 leaf3 = null;
+        private final Leaf4 leaf4 = null;
+        private final Leaf5 leaf5 = null;
+        private final Leaf6 leaf6 = null;
+        private final Leaf7 leaf7 = null;
+        private final Leaf8 leaf8 = null;
+        private final Leaf9 leaf9 = null;
+        private final Leaf10 leaf10 = null;
+        private final Leaf11 leaf11 = null;
+        private final Leaf12 leaf12 = null;
+        private final Leaf13 leaf13 = null;
+        private final Leaf14 leaf14 = null;
+        private final Leaf15 leaf15 = null;
+    }
+
+    static final class Leaf0 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf1 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf2 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf3 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf4 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf5 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf6 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf7 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf8 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf9 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf10 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf11 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf12 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf13 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf14 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    static final class Leaf15 {
+        private final long id = 0;
+        private final String name = null;
+        private final ImmutableList<Integer> values = null;
+    }
+
+    /**
+     * Linked list node that can hold anything, so instances always have to be looked into
+     */
+    static final class Holder {
+        private final Object value;
+        private final Holder next;
+
+        Holder(Object value, Holder next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Every type in both graphs
+     */
+    static final ImmutableList<Class<?>> ALL = ImmutableList.<Class<?>>builder()
+            .add(Deep0.class, Deep1.class, Deep2.class, Deep3.class, Deep4.class, Deep5.class, Deep6.class, Deep7.class)
+            .add(Deep8.class, Deep9.class, Deep10.class, Deep11.class, Deep12.class, Deep13.class, Deep14.class, Deep15.class)
+            .add(Wide.class)
+            .add(Leaf0.class, Leaf1.class, Leaf2.class, Leaf3.class, Leaf4.class, Leaf5.class, Leaf6.class, Leaf7.class)
+            .add(Leaf8.class, Leaf9.class, Leaf10.class, Leaf11.class, Leaf12.class, Leaf13.class, Leaf14.class, Leaf15.class)
+            .build();
+}
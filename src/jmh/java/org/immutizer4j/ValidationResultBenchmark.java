@@ -0,0 +1,62 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building up results with many errors, one error at a time via the public API
+ * vs. the internal collector used during walks
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationResultBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int errorCount;
+
+    private ValidationError[] errors;
+
+    @Setup
+    public void setUp() {
+        errors = new ValidationError[errorCount];
+        for (int i = 0; i < errorCount; i++) {
+            errors[i] = new ValidationError(SyntheticTypes.Wide.class, "field" + i, ViolationType.NON_FINAL_FIELD);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult addError() {
+        ValidationResult result = new ValidationResult(ImmutableSet.of());
+        for(ValidationError error : errors) {
+            result = result.addError(error);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ValidationResult errorCollector() {
+        ErrorCollector<ValidationError> collector = new ErrorCollector<>();
+        for(ValidationError error : errors) {
+            collector.add(error);
+        }
+        return ValidationResult.of(collector);
+    }
+}
@@ -0,0 +1,53 @@
+package org.immutizer4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifying types that were already validated, i.e. the cost of every verify() call after the first one
+ *
+ * @author Jacek Furmankiewicz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WarmLookupBenchmark {
+
+    private Immutizer immutizer;
+    private Object instance;
+
+    @Setup
+    public void setUp() {
+        immutizer = Immutizer.builder().violationReporter(ViolationReporter.NONE).build();
+        instance = new SyntheticTypes.Deep0();
+        immutizer.verify(SyntheticTypes.DEEP);
+    }
+
+    @Benchmark
+    public void verifyClass() {
+        immutizer.verify(SyntheticTypes.DEEP);
+    }
+
+    @Benchmark
+    public void verifyObject() {
+        immutizer.verify(instance);
+    }
+
+    @Benchmark
+    public ValidationResult getValidationResult() {
+        return immutizer.getValidationResult(SyntheticTypes.DEEP);
+    }
+}
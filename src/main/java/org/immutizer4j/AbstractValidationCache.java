@@ -0,0 +1,191 @@
+package org.immutizer4j;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.Futures;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Common single-flight logic for all the validation caches, each type gets a slot holding
+ * the future of its result. Subclasses only decide where the slots are kept
+ *
+ * @author Jacek Furmankiewicz
+ */
+abstract class AbstractValidationCache implements ValidationCache {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder computeNanos = new LongAdder();
+
+    // reverse dependency index: type -> types whose cached results were computed from its result
+    // (weak both ways, so it never keeps any classes reachable)
+    private final ConcurrentMap<Class<?>,Dependents> dependents = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Returns the slot for a type, creates an empty one if needed
+     */
+    protected abstract AtomicReference<CompletableFuture<ValidationResult>> slot(Class<?> type);
+
+    /**
+     * Returns the slot for a type, null if there is none
+     */
+    protected abstract AtomicReference<CompletableFuture<ValidationResult>> slotIfPresent(Class<?> type);
+
+    /**
+     * Removes the slot for a type, if there is one
+     * @return True if there was a result (or one being computed) in the slot
+     */
+    protected abstract boolean remove(Class<?> type);
+
+    /**
+     * Current number of entries
+     */
+    protected abstract long size();
+
+    /**
+     * Number of entries evicted so far
+     */
+    protected long evictionCount() {
+        return 0;
+    }
+
+    @Override
+    public ValidationResult get(Class<?> type, Function<Class<?>,ValidationResult> validator) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = slot(type);
+        CompletableFuture<ValidationResult> future = slot.get();
+        while (future == null) {
+            CompletableFuture<ValidationResult> created = new CompletableFuture<>();
+            if (slot.compareAndSet(null, created)) {
+                // we won, compute it outside of the slot
+                misses.increment();
+                return compute(type, validator, slot, created);
+            }
+            future = slot.get();
+        }
+
+        hits.increment();
+        return Futures.getUnchecked(future);
+    }
+
+    private ValidationResult compute(Class<?> type, Function<Class<?>,ValidationResult> validator,
+                                     AtomicReference<CompletableFuture<ValidationResult>> slot,
+                                     CompletableFuture<ValidationResult> future) {
+        long start = System.nanoTime();
+        try {
+            future.complete(validator.apply(type));
+        } catch (RuntimeException | Error e) {
+            // let the next caller try again
+            slot.compareAndSet(future, null);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            computeNanos.add(System.nanoTime() - start);
+        }
+        // may have been completed earlier by a walk started from another type
+        return future.join();
+    }
+
+    @Override
+    public ValidationResult getIfPresent(Class<?> type) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = slotIfPresent(type);
+        CompletableFuture<ValidationResult> future = (slot != null) ? slot.get() : null;
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    @Override
+    public void put(Class<?> type, ValidationResult result) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = slot(type);
+        if (!slot.compareAndSet(null, CompletableFuture.completedFuture(result))) {
+            CompletableFuture<ValidationResult> existing = slot.get();
+            if (existing != null) {
+                existing.complete(result);
+            }
+        }
+    }
+
+    @Override
+    public void putDependencies(Class<?> type, Collection<Class<?>> dependencies) {
+        for(Class<?> dependency : dependencies) {
+            if (!dependency.equals(type)) {
+                dependents.computeIfAbsent(dependency, d -> new Dependents()).add(type);
+            }
+        }
+    }
+
+    @Override
+    public Set<Class<?>> invalidate(Class<?> type) {
+        Set<Class<?>> visited = new HashSet<>();
+        Set<Class<?>> evicted = new LinkedHashSet<>();
+        Deque<Class<?>> worklist = new ArrayDeque<>();
+        worklist.add(type);
+
+        while (!worklist.isEmpty()) {
+            Class<?> current = worklist.poll();
+            if (visited.add(current)) {
+                if (remove(current)) {
+                    evicted.add(current);
+                }
+                // dependents can still be cached even if the type itself is not (e.g. a super class or an evicted type),
+                // they get recorded again once they are validated again
+                Dependents direct = dependents.remove(current);
+                if (direct != null) {
+                    direct.addTo(worklist);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public ValidationCacheStats getStats() {
+        return new ValidationCacheStats(hits.sum(), misses.sum(), evictionCount(), size(), computeNanos.sum());
+    }
+
+    /**
+     * Types depending directly on a single type, kept as a small copy-on-write array of weak references
+     * (most types have only a handful of dependents)
+     */
+    private static class Dependents {
+
+        private static final WeakReference<?>[] EMPTY = new WeakReference<?>[0];
+
+        private volatile WeakReference<?>[] types = EMPTY;
+
+        synchronized void add(Class<?> type) {
+            // drops the unloaded ones while at it
+            List<WeakReference<?>> live = new ArrayList<>(types.length + 1);
+            for(WeakReference<?> reference : types) {
+                Object existing = reference.get();
+                if (existing == type) {
+                    return;
+                } else if (existing != null) {
+                    live.add(reference);
+                }
+            }
+            live.add(new WeakReference<>(type));
+            types = live.toArray(EMPTY);
+        }
+
+        void addTo(Collection<Class<?>> worklist) {
+            for(WeakReference<?> reference : types) {
+                Object type = reference.get();
+                if (type != null) {
+                    worklist.add((Class<?>) type);
+                }
+            }
+        }
+    }
+}
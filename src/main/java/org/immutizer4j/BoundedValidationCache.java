@@ -0,0 +1,75 @@
+package org.immutizer4j;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validation cache with a maximum size and/or expiry after last access,
+ * for applications that keep generating new classes (proxies, lambdas, codegen, etc)
+ *
+ * @author Jacek Furmankiewicz
+ */
+class BoundedValidationCache extends AbstractValidationCache {
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Cache<Class<?>,AtomicReference<CompletableFuture<ValidationResult>>> results;
+
+    /**
+     * @param maximumSize Maximum number of entries, negative for no limit
+     * @param expireAfterAccessNanos Time after last access an entry gets evicted, negative for never
+     */
+    BoundedValidationCache(long maximumSize, long expireAfterAccessNanos) {
+        CacheBuilder<Object,Object> builder = CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors());
+        if (maximumSize >= 0) {
+            builder.maximumSize(maximumSize);
+        }
+        if (expireAfterAccessNanos >= 0) {
+            builder.expireAfterAccess(expireAfterAccessNanos, TimeUnit.NANOSECONDS);
+        }
+        this.results = builder
+                .<Class<?>,AtomicReference<CompletableFuture<ValidationResult>>>removalListener(n -> {
+                    if (n.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slot(Class<?> type) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = results.getIfPresent(type);
+        if (slot == null) {
+            // creating an empty slot is trivial, nothing ever gets computed inside the cache
+            slot = results.asMap().computeIfAbsent(type, t -> new AtomicReference<>());
+        }
+        return slot;
+    }
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slotIfPresent(Class<?> type) {
+        return results.getIfPresent(type);
+    }
+
+    @Override
+    protected boolean remove(Class<?> type) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = results.asMap().remove(type);
+        return slot != null && slot.get() != null;
+    }
+
+    @Override
+    protected long size() {
+        return results.size();
+    }
+
+    @Override
+    protected long evictionCount() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,19 @@
+package org.immutizer4j;
+
+/**
+ * Controls how validation results are cached
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum CacheMode {
+    /**
+     * Concurrent map holding on to every validated type (default).
+     * Fine as long as all the types come from class loaders that live as long as the Immutizer itself
+     */
+    CONCURRENT_MAP,
+    /**
+     * Results are attached to the validated classes via ClassValue. Entries are released together with
+     * their class loader, so it does not leak old class loaders on hot redeploys in app servers
+     */
+    CLASS_VALUE
+}
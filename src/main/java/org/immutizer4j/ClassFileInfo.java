@@ -0,0 +1,241 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The parts of a class file the validation needs: class hierarchy, generic signature and the fields.
+ * Parsed straight from the bytes (JVMS chapter 4), the class never gets loaded.
+ * Method bodies and all the other attributes are skipped.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Getter
+final class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final String SIGNATURE = "Signature";
+
+    // constant pool tags
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int METHOD_TYPE = 16;
+    private static final int DYNAMIC = 17;
+    private static final int INVOKE_DYNAMIC = 18;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    // internal form, e.g. java/lang/String
+    private final String name;
+    // null for java/lang/Object
+    private final String superName;
+    private final ImmutableList<String> interfaces;
+    private final ImmutableMap<String,TypeSignature> typeParameters;
+    // with the type arguments, null for java/lang/Object
+    private final TypeSignature.ClassType superclass;
+    private final ImmutableList<FieldInfo> fields;
+
+    private ClassFileInfo(String name, String superName, ImmutableList<String> interfaces, String signature,
+                          ImmutableList<FieldInfo> fields) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.fields = fields;
+        if (signature != null) {
+            TypeSignature.ClassSignature parsed = TypeSignature.parseClass(signature, name);
+            this.typeParameters = parsed.getTypeParameters();
+            this.superclass = parsed.getSuperclass();
+        } else {
+            this.typeParameters = ImmutableMap.of();
+            this.superclass = (superName != null) ? new TypeSignature.ClassType(superName, ImmutableList.of()) : null;
+        }
+    }
+
+    /**
+     * @return True if the class declares any type parameters
+     */
+    boolean isGeneric() {
+        return !typeParameters.isEmpty();
+    }
+
+    /**
+     * @return Internal name of the erasure of a type variable declared by this class,
+     * java/lang/Object for variables declared elsewhere (e.g. by the outer class)
+     */
+    String erasure(String typeVariable) {
+        TypeSignature bound = typeParameters.get(typeVariable);
+        // bounds can refer to the type variables declared before them, e.g. <T, U extends T>
+        for (int i = 0; bound instanceof TypeSignature.TypeVariable && i < typeParameters.size(); i++) {
+            bound = typeParameters.get(((TypeSignature.TypeVariable) bound).getName());
+        }
+        return (bound instanceof TypeSignature.ClassType) ? ((TypeSignature.ClassType) bound).getName() : ClassFileValidator.OBJECT;
+    }
+
+    /**
+     * Parses the class file
+     * @throws IllegalArgumentException If the bytes are not a class file
+     */
+    static ClassFileInfo parse(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        // minor and major version
+        in.getInt();
+
+        // only the positions get recorded, strings are decoded when needed
+        int[] constants = new int[in.getShort() & 0xFFFF];
+        for (int i = 1; i < constants.length; i++) {
+            int tag = in.get() & 0xFF;
+            constants[i] = in.position();
+            switch (tag) {
+                case UTF8:
+                    skip(in, 2 + (in.getShort(in.position()) & 0xFFFF));
+                    break;
+                case INTEGER:
+                case FLOAT:
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    skip(in, 4);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    // takes two entries
+                    skip(in, 8);
+                    i++;
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    skip(in, 2);
+                    break;
+                case METHOD_HANDLE:
+                    skip(in, 3);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        // access flags
+        in.getShort();
+        String name = className(in, constants, in.getShort());
+        int superIndex = in.getShort() & 0xFFFF;
+        String superName = (superIndex != 0) ? className(in, constants, superIndex) : null;
+
+        ImmutableList.Builder<String> interfaces = ImmutableList.builder();
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            interfaces.add(className(in, constants, in.getShort()));
+        }
+
+        ImmutableList.Builder<FieldInfo> fields = ImmutableList.builder();
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            int access = in.getShort() & 0xFFFF;
+            String fieldName = utf8(in, constants, in.getShort());
+            String descriptor = utf8(in, constants, in.getShort());
+            String signature = attributes(in, constants);
+            TypeSignature type = TypeSignature.parse((signature != null) ? signature : descriptor, name);
+            fields.add(new FieldInfo(fieldName, descriptor, type, (access & ACC_STATIC) != 0, (access & ACC_FINAL) != 0));
+        }
+
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            // access flags, name, descriptor
+            skip(in, 6);
+            attributes(in, constants);
+        }
+
+        return new ClassFileInfo(name, superName, interfaces.build(), attributes(in, constants), fields.build());
+    }
+
+    // skips over all the attributes, except for the signature which gets returned (null if there is none)
+    private static String attributes(ByteBuffer in, int[] constants) {
+        String signature = null;
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            String attribute = utf8(in, constants, in.getShort());
+            int length = in.getInt();
+            if (SIGNATURE.equals(attribute)) {
+                signature = utf8(in, constants, in.getShort(in.position()));
+            }
+            skip(in, length);
+        }
+        return signature;
+    }
+
+    private static String className(ByteBuffer in, int[] constants, short index) {
+        return className(in, constants, index & 0xFFFF);
+    }
+
+    private static String className(ByteBuffer in, int[] constants, int index) {
+        return utf8(in, constants, in.getShort(constants[index]));
+    }
+
+    // decodes the modified UTF-8 used by class files
+    private static String utf8(ByteBuffer in, int[] constants, short index) {
+        int offset = constants[index & 0xFFFF];
+        int length = in.getShort(offset) & 0xFFFF;
+        char[] chars = new char[length];
+        int count = 0;
+        for (int i = offset + 2, end = i + length; i < end; ) {
+            int b = in.get(i++) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (in.get(i++) & 0x3F));
+            } else {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((in.get(i++) & 0x3F) << 6) | (in.get(i++) & 0x3F));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static void skip(ByteBuffer in, int bytes) {
+        in.position(in.position() + bytes);
+    }
+
+    /**
+     * Field declared in the class file
+     */
+    @Value
+    static class FieldInfo {
+        private String name;
+        // erased type, e.g. Ljava/util/List;
+        private String descriptor;
+        // generic type if there is a signature, otherwise the descriptor
+        private TypeSignature type;
+        private boolean staticField;
+        private boolean finalField;
+
+        /**
+         * @return Internal name of the erased class type, null for primitives and arrays
+         */
+        String getErasedClass() {
+            return (descriptor.charAt(0) == 'L') ? descriptor.substring(1, descriptor.length() - 1) : null;
+        }
+
+        boolean isArray() {
+            return descriptor.charAt(0) == '[';
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+/**
+ * Validation error found in a class file, the type is known only by its name since it never gets loaded
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class ClassFileValidationError {
+
+    // binary name, e.g. org.immutizer4j.Immutizer or a.b.Outer$Inner
+    private String typeName;
+    // null if the error is about the type as a whole
+    private String fieldName;
+    private ViolationType violationType;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = ThreadLocals.STRINGBUILDER.get().append(typeName);
+        if (fieldName != null) {
+            builder.append(ImmutizerConstants.FIELD_SEPARATOR).append(fieldName);
+        }
+        return builder
+                .append(ImmutizerConstants.MSG_SEPARATOR)
+                .append(violationType)
+                .toString();
+    }
+}
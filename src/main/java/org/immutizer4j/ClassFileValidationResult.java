@@ -0,0 +1,49 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableSet;
+import lombok.Value;
+
+import java.util.stream.Collectors;
+
+/**
+ * Validation result of a type validated from its class file
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class ClassFileValidationResult {
+
+    private static final String OK = "OK";
+
+    /**
+     * Shared result for all the types without any violations
+     */
+    static final ClassFileValidationResult VALID = new ClassFileValidationResult(ImmutableSet.<ClassFileValidationError>of());
+
+    private ImmutableSet<ClassFileValidationError> errors;
+
+    /**
+     * Freezes all the errors collected during a pass into an immutable result
+     */
+    static ClassFileValidationResult of(ErrorCollector<ClassFileValidationError> errors) {
+        return errors.isEmpty() ? VALID : new ClassFileValidationResult(errors.toSet());
+    }
+
+    /**
+     * Returns if the validation passed or not
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (isValid()) {
+            return OK;
+        } else {
+            return errors.stream()
+                    .map(ClassFileValidationError::toString)
+                    .collect(Collectors.joining(ImmutizerConstants.NEWLINE));
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package org.immutizer4j;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Validates types straight from their class files, with the same rules (and the same settings) as the Immutizer,
+ * but without ever loading or initializing any class. Meant for scanning whole jars or build output
+ * directories at startup or in CI, e.g.
+ * <pre>
+ * try (ClassFileValidator validator = ClassFileValidator.open(immutizer, Paths.get("build/libs/app.jar"))) {
+ *     ImmutableMap&lt;String,ClassFileValidationResult&gt; results = validator.getValidationResults();
+ * }
+ * </pre>
+ * Types referenced from outside the jars and directories (JDK, libraries) are read as resources of a class loader,
+ * they do not get loaded either. Types without a class file anywhere are reported as UNRESOLVABLE_TYPE.
+ * The class files are parsed and the types validated in parallel, every type is parsed and validated only once.
+ *
+ * Unlike the Immutizer, it knows nothing about live instances, verified type registries or precomputed verdicts.
+ * Thread-safe.
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class ClassFileValidator implements Closeable {
+
+    static final String OBJECT = "java/lang/Object";
+    private static final String COLLECTION = "java/util/Collection";
+
+    private final boolean strict;
+    // internal names of the safe types
+    private final ImmutableSet<String> safeTypes;
+    private final ClassPathIndex classPath;
+
+    // memoized decision for every type checked against the safe types
+    private final Map<String,Boolean> safeTypeIndex = new ConcurrentHashMap<>();
+    // verdicts of all the types validated so far
+    private final Map<String,ClassFileValidationResult> results = new ConcurrentHashMap<>();
+
+    private ClassFileValidator(Immutizer immutizer, ClassPathIndex classPath) {
+        this.strict = immutizer.isStrict();
+        this.safeTypes = immutizer.getSafeTypes().stream()
+                .map(type -> type.getName().replace('.', '/'))
+                .collect(ImmutableSet.toImmutableSet());
+        this.classPath = classPath;
+    }
+
+    /**
+     * Opens the jars and directories, referenced types found in neither are read via the context class loader
+     * @param immutizer Immutizer whose settings (strict mode, safe types) get applied
+     * @param classPath Jars and directories with the class files
+     */
+    public static ClassFileValidator open(@NonNull Immutizer immutizer, @NonNull Path... classPath) throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return open(immutizer, Arrays.asList(classPath), (classLoader != null) ? classLoader : Immutizer.class.getClassLoader());
+    }
+
+    /**
+     * Opens the jars and directories
+     * @param immutizer Immutizer whose settings (strict mode, safe types) get applied
+     * @param classPath Jars and directories with the class files
+     * @param classLoader Class loader the class files of all the other referenced types are read from
+     */
+    public static ClassFileValidator open(@NonNull Immutizer immutizer, @NonNull Collection<Path> classPath,
+                                          @NonNull ClassLoader classLoader) throws IOException {
+        return new ClassFileValidator(immutizer, ClassPathIndex.open(classPath, classLoader));
+    }
+
+    /**
+     * @return Binary names (e.g. a.b.Outer$Inner) of all the classes in the jars and directories
+     */
+    public ImmutableSet<String> getClassNames() {
+        return classPath.getClassNames().stream()
+                .map(ClassFileValidator::binaryName)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    /**
+     * Performs type validation for immutability across the entire graph of types reachable from the class
+     * @param className Binary name of the class, does not have to be in the jars and directories
+     * @return Validation result
+     * @throws java.io.UncheckedIOException If a class file of the type or any type reachable from it cannot be read
+     */
+    public ClassFileValidationResult getValidationResult(@NonNull String className) {
+        return getValidationResults(ImmutableList.of(className), Runnable::run).get(className);
+    }
+
+    /**
+     * Validates all the classes in the jars and directories, spread across the common ForkJoinPool
+     * @return Validation result for each class, by binary name
+     */
+    public ImmutableMap<String,ClassFileValidationResult> getValidationResults() {
+        return getValidationResults(getClassNames(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Performs type validation for many classes at once. Class files are parsed and their fields validated in parallel,
+     * types shared between the graphs are validated only once
+     * @param classNames Binary names of the classes, do not have to be in the jars and directories
+     * @param executor Executor to spread the parsing and validation across
+     * @return Validation result for each class, in the order they were passed in
+     * @throws java.io.UncheckedIOException If a class file of any type reachable from the classes cannot be read
+     */
+    public ImmutableMap<String,ClassFileValidationResult> getValidationResults(@NonNull Collection<String> classNames,
+                                                                              @NonNull Executor executor) {
+        List<String> names = new ArrayList<>(classNames.size());
+        for(String className : classNames) {
+            names.add(className.replace('.', '/'));
+        }
+        validate(names, executor);
+
+        ImmutableMap.Builder<String,ClassFileValidationResult> builder = ImmutableMap.builder();
+        for(String name : new LinkedHashSet<>(names)) {
+            builder.put(binaryName(name), results.get(name));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        classPath.close();
+    }
+
+    // discovers and validates all the types reachable from the roots that do not have a verdict yet
+    private synchronized void validate(Collection<String> roots, Executor executor) {
+        Map<String,Integer> index = new HashMap<>();
+        List<TypeNode> nodes = new ArrayList<>();
+
+        Set<String> pending = new LinkedHashSet<>();
+        for(String root : roots) {
+            if (!results.containsKey(root)) {
+                pending.add(root);
+            }
+        }
+
+        // each round validates the types found by the previous one, in parallel
+        while (!pending.isEmpty()) {
+            Map<String,CompletableFuture<TypeNode>> futures = new LinkedHashMap<>();
+            for(String name : pending) {
+                futures.put(name, CompletableFuture.supplyAsync(() -> validateType(name), executor));
+                index.put(name, -1);
+            }
+
+            Set<String> next = new LinkedHashSet<>();
+            for(Map.Entry<String,CompletableFuture<TypeNode>> entry : futures.entrySet()) {
+                TypeNode node;
+                try {
+                    node = entry.getValue().join();
+                } catch (CompletionException e) {
+                    // e.g. a class file that cannot be read
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw e;
+                }
+                index.put(entry.getKey(), nodes.size());
+                nodes.add(node);
+                for(TypeReference reference : node.references) {
+                    if (!results.containsKey(reference.type) && !index.containsKey(reference.type)) {
+                        next.add(reference.type);
+                    }
+                }
+            }
+            pending = next;
+        }
+
+        for(TypeNode node : nodes) {
+            for(TypeReference reference : node.references) {
+                Integer target = index.get(reference.type);
+                if (target != null) {
+                    reference.target = target;
+                } else {
+                    reference.result = results.get(reference.type);
+                }
+            }
+        }
+        new Resolution(nodes).resolve();
+    }
+
+    // validates all the fields in the type hierarchy, referenced types are only recorded
+    private TypeNode validateType(String name) {
+        TypeNode node = new TypeNode(name);
+        if (isSafeType(name)) {
+            // safe types do not need to be tested
+            return node;
+        }
+
+        // type variables of the current class in the hierarchy, bound via the type arguments passed to it
+        Map<String,TypeSignature> bindings = Collections.emptyMap();
+        TypeSignature.ClassType current = new TypeSignature.ClassType(name, ImmutableList.of());
+        while (!current.getName().equals(OBJECT)) {
+            ClassFileInfo info = classPath.find(current.getName());
+            if (info == null) {
+                // without the whole class hierarchy there is no telling what the fields are
+                TypeNode unresolvable = new TypeNode(name);
+                unresolvable.errors.add(new ClassFileValidationError(binaryName(name), null, ViolationType.UNRESOLVABLE_TYPE));
+                return unresolvable;
+            }
+
+            bindings = bind(info, current);
+            for(ClassFileInfo.FieldInfo field : info.getFields()) {
+                if (!field.isStaticField()) {
+                    validateField(info, field, field.getType().substitute(bindings), node);
+                }
+            }
+
+            // move up the class hierarchy level
+            if (info.getSuperclass() == null) {
+                break;
+            }
+            current = info.getSuperclass().substitute(bindings);
+        }
+        return node;
+    }
+
+    // performs all the validations for a single field, the same as the Immutizer does via reflection
+    private void validateField(ClassFileInfo info, ClassFileInfo.FieldInfo field, TypeSignature resolved, TypeNode node) {
+        // basic final check
+        if (!field.isFinalField()) {
+            node.addError(info, field, ViolationType.NON_FINAL_FIELD);
+        }
+
+        if (field.getErasedClass() != null && classPath.find(field.getErasedClass()) == null) {
+            // no telling if it is a collection, let alone what is stored in it
+            node.addError(info, field, ViolationType.UNRESOLVABLE_TYPE);
+            return;
+        }
+
+        handleCollections(info, field, resolved, node);
+
+        // arrays (can be allowed if we are not running in strict mode)
+        if (field.isArray() && strict) {
+            node.addError(info, field, ViolationType.MUTABLE_ARRAY);
+        }
+
+        // arrays are checked on their own, what matters is the type stored in them
+        TypeSignature actualType = resolved;
+        while (actualType instanceof TypeSignature.ArrayType) {
+            actualType = ((TypeSignature.ArrayType) actualType).getComponentType();
+        }
+        String target = rawType(actualType);
+
+        // reference to a generic type, erased all the way down to Object
+        if (actualType instanceof TypeSignature.TypeVariable && target.equals(OBJECT)) {
+            node.addError(info, field, ViolationType.UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE);
+        }
+
+        if (!isSafeType(target)) {
+            node.references.add(new TypeReference(target, null));
+        }
+    }
+
+    // common logic for handling collection types
+    private void handleCollections(ClassFileInfo info, ClassFileInfo.FieldInfo field, TypeSignature resolved, TypeNode node) {
+        String erasedClass = field.getErasedClass();
+        if (erasedClass == null || !classPath.getSupertypes(erasedClass).contains(COLLECTION)) {
+            return;
+        }
+
+        // check if collection is immutable to begin with
+        if (!isSafeType(erasedClass)) {
+            node.addError(info, field, ViolationType.MUTABLE_TYPE);
+        }
+
+        ElementTypes elements = new ElementTypes();
+        if (resolved instanceof TypeSignature.ClassType && !((TypeSignature.ClassType) resolved).getArguments().isEmpty()) {
+            for(TypeSignature argument : ((TypeSignature.ClassType) resolved).getArguments()) {
+                elements.add(argument);
+            }
+        } else {
+            // raw collection
+            elements.wildcard = true;
+        }
+
+        // check if the type stored in the collection is immutable
+        if (elements.wildcard) {
+            node.addError(info, field, ViolationType.GENERIC_TYPE_WITH_WILDCARD);
+        }
+        for(String nestedCollection : elements.collections) {
+            if (!isSafeType(nestedCollection)) {
+                node.addError(info, field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION);
+            }
+        }
+        if (elements.arrays && strict) {
+            node.addError(info, field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION);
+        }
+
+        // flagged once the verdict of the stored type is known
+        for(String elementType : elements.types) {
+            if (!isSafeType(elementType)) {
+                node.references.add(new TypeReference(elementType, new ClassFileValidationError(
+                        binaryName(info.getName()), field.getName(), ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION)));
+            }
+        }
+    }
+
+    // type variables of the class mapped to the type arguments passed to it, none if it is used as a raw type
+    private static Map<String,TypeSignature> bind(ClassFileInfo info, TypeSignature.ClassType type) {
+        if (type.getArguments().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String,TypeSignature> bindings = new HashMap<>();
+        int i = 0;
+        for(String typeVariable : info.getTypeParameters().keySet()) {
+            if (i < type.getArguments().size()) {
+                bindings.put(typeVariable, type.getArguments().get(i++));
+            }
+        }
+        return bindings;
+    }
+
+    // erased class of a (non-array) type
+    private String rawType(TypeSignature type) {
+        if (type instanceof TypeSignature.ClassType) {
+            return ((TypeSignature.ClassType) type).getName();
+        } else if (type instanceof TypeSignature.PrimitiveType) {
+            return ((TypeSignature.PrimitiveType) type).getName();
+        } else if (type instanceof TypeSignature.TypeVariable) {
+            TypeSignature.TypeVariable variable = (TypeSignature.TypeVariable) type;
+            return classPath.get(variable.getDeclaringClass()).erasure(variable.getName());
+        } else {
+            return OBJECT;
+        }
+    }
+
+    // validates if the type can be safely assigned to any of the safe types
+    private boolean isSafeType(String name) {
+        if (safeTypes.contains(name)) {
+            return true;
+        }
+        Boolean safe = safeTypeIndex.get(name);
+        if (safe == null) {
+            safe = !Collections.disjoint(classPath.getSupertypes(name), safeTypes);
+            safeTypeIndex.put(name, safe);
+        }
+        return safe;
+    }
+
+    private static String binaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    /**
+     * Everything found in the tree of the collection type arguments
+     */
+    private class ElementTypes {
+        private final List<String> types = new ArrayList<>();
+        private final List<String> collections = new ArrayList<>();
+        private boolean arrays;
+        private boolean wildcard;
+
+        void add(TypeSignature type) {
+            if (type instanceof TypeSignature.ArrayType) {
+                arrays = true;
+                add(((TypeSignature.ArrayType) type).getComponentType());
+            } else if (type instanceof TypeSignature.PrimitiveType) {
+                types.add(((TypeSignature.PrimitiveType) type).getName());
+            } else if (type instanceof TypeSignature.ClassType) {
+                TypeSignature.ClassType classType = (TypeSignature.ClassType) type;
+                boolean collection = classPath.getSupertypes(classType.getName()).contains(COLLECTION);
+                if (classType.getArguments().isEmpty()) {
+                    ClassFileInfo info = classPath.find(classType.getName());
+                    if (collection || (info != null && info.isGeneric())) {
+                        // raw type, no way to tell what is stored in it
+                        wildcard = true;
+                    } else {
+                        types.add(classType.getName());
+                    }
+                } else {
+                    if (collection) {
+                        collections.add(classType.getName());
+                    } else {
+                        // generic class that is not a collection, gets validated on its own like any other
+                        types.add(classType.getName());
+                    }
+                    for(TypeSignature argument : classType.getArguments()) {
+                        add(argument);
+                    }
+                }
+            } else {
+                // wildcards and type variables not bound by the class hierarchy
+                wildcard = true;
+            }
+        }
+    }
+
+    /**
+     * Everything found out about a single type
+     */
+    private static class TypeNode {
+        private final String name;
+        private final List<TypeReference> references = new ArrayList<>();
+        // violations found in the fields of this type, then everything it refers to while resolving
+        private final ErrorCollector<ClassFileValidationError> errors = new ErrorCollector<>();
+
+        TypeNode(String name) {
+            this.name = name;
+        }
+
+        void addError(ClassFileInfo info, ClassFileInfo.FieldInfo field, ViolationType violationType) {
+            errors.add(new ClassFileValidationError(binaryName(info.getName()), field.getName(), violationType));
+        }
+    }
+
+    /**
+     * Reference from one type to another
+     */
+    private static class TypeReference implements ComponentResolver.Reference<ClassFileValidationResult> {
+        private final String type;
+        // only for references to the type stored in a collection, the error reported if it is not immutable
+        private final ClassFileValidationError elementError;
+
+        // node in this pass or verdict known from before, one or the other
+        private int target = -1;
+        private ClassFileValidationResult result;
+
+        TypeReference(String type, ClassFileValidationError elementError) {
+            this.type = type;
+            this.elementError = elementError;
+        }
+
+        @Override
+        public int getTarget() {
+            return target;
+        }
+
+        @Override
+        public ClassFileValidationResult getResult() {
+            return result;
+        }
+
+        @Override
+        public boolean isElement() {
+            return elementError != null;
+        }
+    }
+
+    /**
+     * Resolution of all the types validated in a pass
+     */
+    private class Resolution extends ComponentResolver<ClassFileValidationError, ClassFileValidationResult, TypeReference> {
+        private final List<TypeNode> nodes;
+
+        Resolution(List<TypeNode> nodes) {
+            super(nodes.size());
+            this.nodes = nodes;
+        }
+
+        @Override
+        List<TypeReference> references(int node) {
+            return nodes.get(node).references;
+        }
+
+        @Override
+        ErrorCollector<ClassFileValidationError> errors(int node) {
+            return nodes.get(node).errors;
+        }
+
+        @Override
+        Collection<ClassFileValidationError> errorsOf(ClassFileValidationResult result) {
+            return result.getErrors();
+        }
+
+        @Override
+        ClassFileValidationResult toResult(ErrorCollector<ClassFileValidationError> errors) {
+            return ClassFileValidationResult.of(errors);
+        }
+
+        @Override
+        void addElementError(TypeReference reference, ErrorCollector<ClassFileValidationError> errors) {
+            errors.add(reference.elementError);
+        }
+
+        @Override
+        void publish(int node, ClassFileValidationResult result) {
+            results.put(nodes.get(node).name, result);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.immutizer4j;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.OptionalLong;
+
+/**
+ * Access to the class files behind the loaded classes, used for detecting if a precomputed verdict
+ * still belongs to the same code
+ *
+ * @author Jacek Furmankiewicz
+ */
+class ClassFiles {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final String CLASS_SUFFIX = ".class";
+
+    private ClassFiles() {}
+
+    /**
+     * Name of the class file resource, e.g. org/immutizer4j/Immutizer.class
+     */
+    static String resourceName(String className) {
+        return className.replace('.', '/') + CLASS_SUFFIX;
+    }
+
+    /**
+     * Hash of the class file, as seen by the class loader of the type
+     * @return Empty if there is no class file for the type (e.g. classes generated at runtime)
+     */
+    static OptionalLong hash(Class<?> type) {
+        ClassLoader loader = (type.getClassLoader() != null) ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+        try (InputStream in = loader.getResourceAsStream(resourceName(type.getName()))) {
+            if (in == null) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(HASH.hashBytes(ByteStreams.toByteArray(in)).asLong());
+        } catch (IOException e) {
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.immutizer4j;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Compile time registries and validation manifests visible to a class loader.
+ * Finding them scans the whole class path, so it is done once per class loader and shared by every Immutizer
+ * built with it, each one then picks the ones that match its own settings. Jars added to a class loader
+ * after the first Immutizer was built with it are not picked up.
+ *
+ * Nothing cached refers back to the class loader, so it can still get garbage collected.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+class ClassPathArtifacts {
+
+    private static final LoadingCache<ClassLoader,ImmutableList<Registry>> REGISTRIES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(ClassPathArtifacts::loadRegistries));
+
+    // by location, for logging
+    private static final LoadingCache<ClassLoader,ImmutableMap<String,ValidationManifest>> MANIFESTS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(ClassPathArtifacts::loadManifests));
+
+    private ClassPathArtifacts() {}
+
+    /**
+     * @return Contents of all the registries generated by the annotation processor, found via ServiceLoader
+     */
+    static ImmutableList<Registry> getRegistries(ClassLoader classLoader) {
+        return REGISTRIES.getUnchecked(classLoader);
+    }
+
+    /**
+     * @return All the validation manifests that could be read, by location
+     */
+    static ImmutableMap<String,ValidationManifest> getManifests(ClassLoader classLoader) {
+        return MANIFESTS.getUnchecked(classLoader);
+    }
+
+    // copies of the registries, the generated classes would keep the class loader reachable
+    private static ImmutableList<Registry> loadRegistries(ClassLoader classLoader) {
+        ImmutableList.Builder<Registry> registries = ImmutableList.builder();
+        for(VerifiedTypeRegistry registry : ServiceLoader.load(VerifiedTypeRegistry.class, classLoader)) {
+            registries.add(new Registry(registry.getClass().getName(), registry.isStrict(),
+                    ImmutableSet.copyOf(registry.getSafeTypes()), ImmutableSet.copyOf(registry.getVerifiedTypes())));
+        }
+        return registries.build();
+    }
+
+    // a corrupted manifest is simply skipped
+    private static ImmutableMap<String,ValidationManifest> loadManifests(ClassLoader classLoader) {
+        // the same jar can be listed more than once
+        Map<String,ValidationManifest> manifests = new LinkedHashMap<>();
+        try {
+            for(URL url : Collections.list(classLoader.getResources(ValidationManifest.LOCATION))) {
+                try (InputStream in = new BufferedInputStream(url.openStream())) {
+                    manifests.putIfAbsent(url.toString(), ValidationManifest.read(in));
+                } catch (IOException e) {
+                    log.warn("Ignoring corrupted validation manifest {}", url, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to look up validation manifests", e);
+        }
+        return ImmutableMap.copyOf(manifests);
+    }
+
+    /**
+     * Contents of a VerifiedTypeRegistry
+     */
+    @Value
+    static class Registry {
+        private final String name;
+        private final boolean strict;
+        private final ImmutableSet<String> safeTypes;
+        private final ImmutableSet<String> verifiedTypes;
+    }
+}
@@ -0,0 +1,220 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Class files found in a set of jars and directories, parsed on demand and cached.
+ * Classes outside of them (JDK, libraries) are read as resources of a class loader, never loaded.
+ * Thread-safe.
+ *
+ * @author Jacek Furmankiewicz
+ */
+class ClassPathIndex implements Closeable {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String META_INF = "META-INF";
+    // smaller class files are cheaper to read than to map, each mapping costs a system call and a page at least
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    // internal class name -> class file, the first jar or directory listing a class wins
+    private final ImmutableMap<String,Path> classFiles;
+    private final List<FileSystem> jars;
+    private final ClassLoader classLoader;
+
+    private final ConcurrentMap<String,ClassFileInfo> classes = new ConcurrentHashMap<>();
+    // classes without a class file
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    // each class and all of its super classes and interfaces
+    private final ConcurrentMap<String,ImmutableSet<String>> supertypes = new ConcurrentHashMap<>();
+
+    private ClassPathIndex(ImmutableMap<String,Path> classFiles, List<FileSystem> jars, ClassLoader classLoader) {
+        this.classFiles = classFiles;
+        this.jars = jars;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Lists all the class files in the jars and directories
+     * @param classLoader Used for reading the class files of all the other classes
+     */
+    static ClassPathIndex open(Collection<Path> roots, ClassLoader classLoader) throws IOException {
+        Map<String,Path> classFiles = new LinkedHashMap<>();
+        List<FileSystem> jars = new ArrayList<>();
+        try {
+            for(Path root : roots) {
+                Path directory = root;
+                if (Files.isRegularFile(root)) {
+                    FileSystem jar = FileSystems.newFileSystem(root, (ClassLoader) null);
+                    jars.add(jar);
+                    directory = jar.getPath("/");
+                }
+
+                try (Stream<Path> files = Files.walk(directory)) {
+                    Path base = directory;
+                    files.filter(file -> Files.isRegularFile(file) && isClassFile(base.relativize(file)))
+                            .forEach(file -> classFiles.putIfAbsent(className(base.relativize(file)), file));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close(jars);
+            throw e;
+        }
+        return new ClassPathIndex(ImmutableMap.copyOf(classFiles), jars, classLoader);
+    }
+
+    /**
+     * @return Internal names of all the classes in the jars and directories
+     */
+    ImmutableSet<String> getClassNames() {
+        return classFiles.keySet();
+    }
+
+    /**
+     * @param name Internal class name, e.g. java/lang/String
+     * @throws UncheckedIOException If there is no class file for the class
+     */
+    ClassFileInfo get(String name) {
+        ClassFileInfo info = find(name);
+        if (info == null) {
+            throw new UncheckedIOException(new NoSuchFileException(ClassFiles.resourceName(name), null, "Class file not found"));
+        }
+        return info;
+    }
+
+    /**
+     * @param name Internal class name, e.g. java/lang/String
+     * @return Null if there is no class file for the class
+     * @throws UncheckedIOException If the class file cannot be read
+     */
+    ClassFileInfo find(String name) {
+        ClassFileInfo info = classes.get(name);
+        if (info == null && !missing.contains(name)) {
+            ByteBuffer bytes;
+            try {
+                bytes = read(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (bytes == null) {
+                missing.add(name);
+                return null;
+            }
+            info = ClassFileInfo.parse(bytes);
+            ClassFileInfo existing = classes.putIfAbsent(name, info);
+            info = (existing != null) ? existing : info;
+        }
+        return info;
+    }
+
+    /**
+     * @return The class itself and all of its super classes and interfaces (internal names),
+     * the ones without a class file are listed but their own super types are not
+     */
+    ImmutableSet<String> getSupertypes(String name) {
+        ImmutableSet<String> types = supertypes.get(name);
+        if (types == null) {
+            ClassFileInfo info = find(name);
+            ImmutableSet.Builder<String> builder = ImmutableSet.<String>builder().add(name);
+            if (info != null) {
+                if (info.getSuperName() != null) {
+                    builder.addAll(getSupertypes(info.getSuperName()));
+                }
+                for(String type : info.getInterfaces()) {
+                    builder.addAll(getSupertypes(type));
+                }
+            }
+            types = builder.build();
+            supertypes.putIfAbsent(name, types);
+        }
+        return types;
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(jars);
+    }
+
+    // large class files in directories get memory mapped, jar entries are compressed and have to be inflated
+    // null if there is no class file for the class
+    private ByteBuffer read(String name) throws IOException {
+        Path file = classFiles.get(name);
+        if (file != null) {
+            if (file.getFileSystem() == FileSystems.getDefault()) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    if (size >= MAP_THRESHOLD) {
+                        // the mapping stays valid after the channel is closed
+                        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    }
+                    // the parsed class file keeps referring to the bytes, so the buffer cannot be reused
+                    ByteBuffer bytes = ByteBuffer.allocate((int) size);
+                    int read = 0;
+                    while (bytes.hasRemaining() && read >= 0) {
+                        read = channel.read(bytes);
+                    }
+                    bytes.flip();
+                    return bytes;
+                }
+            } else {
+                return ByteBuffer.wrap(Files.readAllBytes(file));
+            }
+        }
+
+        try (InputStream in = classLoader.getResourceAsStream(ClassFiles.resourceName(name))) {
+            if (in == null) {
+                return null;
+            }
+            return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+        }
+    }
+
+    private static boolean isClassFile(Path relative) {
+        String fileName = String.valueOf(relative.getFileName());
+        return fileName.endsWith(CLASS_SUFFIX) && !fileName.equals("module-info.class") && !fileName.equals("package-info.class")
+                // multi-release jars keep other versions of the classes in there
+                && !relative.startsWith(META_INF);
+    }
+
+    private static String className(Path relative) {
+        String path = relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+        return path.substring(0, path.length() - CLASS_SUFFIX.length());
+    }
+
+    private static void close(List<FileSystem> jars) throws IOException {
+        IOException failure = null;
+        for(FileSystem jar : jars) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
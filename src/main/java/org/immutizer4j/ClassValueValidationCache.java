@@ -0,0 +1,50 @@
+package org.immutizer4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validation cache that stores each result with the class itself, via ClassValue.
+ * Does not keep any classes reachable, so entries go away together with their class loader
+ * (e.g. on hot redeploys in an app server)
+ *
+ * @author Jacek Furmankiewicz
+ */
+class ClassValueValidationCache extends AbstractValidationCache {
+
+    // there is no way to tell when a class gets unloaded, so this only ever goes up
+    private final LongAdder size = new LongAdder();
+
+    private final ClassValue<AtomicReference<CompletableFuture<ValidationResult>>> results =
+            new ClassValue<AtomicReference<CompletableFuture<ValidationResult>>>() {
+                @Override
+                protected AtomicReference<CompletableFuture<ValidationResult>> computeValue(Class<?> type) {
+                    size.increment();
+                    return new AtomicReference<>();
+                }
+            };
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slot(Class<?> type) {
+        return results.get(type);
+    }
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slotIfPresent(Class<?> type) {
+        return results.get(type);
+    }
+
+    @Override
+    protected boolean remove(Class<?> type) {
+        // there is no way to look without creating a slot, the next lookup creates a new empty one (and counts it again)
+        boolean present = results.get(type).get() != null;
+        results.remove(type);
+        return present;
+    }
+
+    @Override
+    protected long size() {
+        return size.sum();
+    }
+}
@@ -0,0 +1,48 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the metrics of every walk in memory, e.g. to find out which types dominate the validation
+ * cost at startup. Thread-safe
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class CollectingValidationListener implements ValidationListener {
+
+    private final Queue<TypeValidationMetrics> metrics = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void typeValidated(TypeValidationMetrics metrics) {
+        this.metrics.add(metrics);
+    }
+
+    /**
+     * @return Metrics of all the walks so far, in the order they finished
+     */
+    public ImmutableList<TypeValidationMetrics> getMetrics() {
+        return ImmutableList.copyOf(metrics);
+    }
+
+    /**
+     * @param count Maximum number of walks to return
+     * @return Metrics of the slowest walks so far, slowest first
+     */
+    public ImmutableList<TypeValidationMetrics> getSlowest(int count) {
+        return metrics.stream()
+                .sorted(Comparator.comparingLong(TypeValidationMetrics::getWalkNanos).reversed())
+                .limit(count)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Forgets all the metrics collected so far
+     */
+    public void clear() {
+        metrics.clear();
+    }
+}
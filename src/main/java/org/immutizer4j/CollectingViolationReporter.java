@@ -0,0 +1,36 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps every reported violation in memory, e.g. for a report at the end of a startup scan.
+ * Thread-safe
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class CollectingViolationReporter implements ViolationReporter {
+
+    private final Queue<ValidationError> errors = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void report(Class<?> type, String fieldName, ViolationType violationType) {
+        errors.add(new ValidationError(type, fieldName, violationType));
+    }
+
+    /**
+     * @return All the violations reported so far, in the order they were found
+     */
+    public ImmutableList<ValidationError> getErrors() {
+        return ImmutableList.copyOf(errors);
+    }
+
+    /**
+     * Forgets all the violations reported so far
+     */
+    public void clear() {
+        errors.clear();
+    }
+}
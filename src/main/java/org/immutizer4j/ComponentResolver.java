@@ -0,0 +1,267 @@
+package org.immutizer4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the verdicts of all the types discovered in a validation pass: their strongly connected components
+ * get resolved in reverse topological order, so cycles are handled in linear time.
+ *
+ * Shared by the TypeGraphWalker (reflection) and the ClassFileValidator (class files), so both give
+ * the same verdicts for cyclic graphs. They only differ in how the types, errors and results are represented.
+ *
+ * @param <E> Validation error
+ * @param <R> Validation result
+ * @param <F> Reference from one type to another
+ *
+ * @author Jacek Furmankiewicz
+ */
+abstract class ComponentResolver<E, R, F extends ComponentResolver.Reference<R>> {
+
+    private final List<R> results;
+    // strongly connected component of each node
+    private final int[] componentOf;
+
+    ComponentResolver(int size) {
+        this.results = new ArrayList<>(Collections.nCopies(size, null));
+        this.componentOf = new int[size];
+    }
+
+    /**
+     * @return All the references of the node, including the ones to types with a verdict known from before
+     */
+    abstract List<F> references(int node);
+
+    /**
+     * @return Violations found in the fields of the node, everything it refers to gets added while resolving
+     */
+    abstract ErrorCollector<E> errors(int node);
+
+    abstract Collection<E> errorsOf(R result);
+
+    abstract R toResult(ErrorCollector<E> errors);
+
+    /**
+     * Flags the collection field of a reference to a type stored in it that is not immutable
+     */
+    abstract void addElementError(F reference, ErrorCollector<E> errors);
+
+    /**
+     * Called once with the final verdict of each node
+     */
+    abstract void publish(int node, R result);
+
+    /**
+     * Resolves all the nodes
+     */
+    void resolve() {
+        int[][] successors = new int[results.size()][];
+        for (int i = 0; i < successors.length; i++) {
+            successors[i] = references(i).stream()
+                    .filter(r -> r.getTarget() >= 0)
+                    .mapToInt(Reference::getTarget)
+                    .toArray();
+        }
+        List<int[]> components = components(successors);
+        for (int i = 0; i < components.size(); i++) {
+            for (int member : components.get(i)) {
+                componentOf[member] = i;
+            }
+        }
+        for (int[] component : components) {
+            resolve(component);
+        }
+    }
+
+    // computes the verdict of every type in a strongly connected component
+    private void resolve(int[] component) {
+        int id = componentOf[component[0]];
+
+        // own errors plus everything contributed by the types outside of the component
+        boolean valid = true;
+        for (int member : component) {
+            ErrorCollector<E> errors = errors(member);
+            for (F reference : references(member)) {
+                if (!isInside(reference, id)) {
+                    merge(reference, resultOf(reference), errors);
+                }
+            }
+            valid &= errors.isEmpty();
+        }
+
+        if (!valid) {
+            // every member of a cycle can reach every other one, so they are all invalid together
+            for (int member : component) {
+                for (F reference : references(member)) {
+                    if (reference.isElement() && isInside(reference, id)) {
+                        addElementError(reference, errors(member));
+                    }
+                }
+            }
+        }
+
+        if (component.length == 1) {
+            // a direct reference to itself cannot bring in anything new
+            publishResult(component[0], toResult(errors(component[0])));
+        } else if (valid) {
+            R result = toResult(new ErrorCollector<>());
+            for (int member : component) {
+                publishResult(member, result);
+            }
+        } else {
+            resolveDirectReferences(component, id);
+        }
+    }
+
+    // within an invalid cycle each type also gets the errors of every type reachable via its direct fields
+    private void resolveDirectReferences(int[] component, int id) {
+        Map<Integer, Integer> local = new HashMap<>();
+        for (int i = 0; i < component.length; i++) {
+            local.put(component[i], i);
+        }
+
+        int[][] successors = new int[component.length][];
+        for (int i = 0; i < component.length; i++) {
+            successors[i] = references(component[i]).stream()
+                    .filter(r -> !r.isElement() && isInside(r, id))
+                    .mapToInt(r -> local.get(r.getTarget()))
+                    .toArray();
+        }
+
+        for (int[] group : components(successors)) {
+            ErrorCollector<E> errors = new ErrorCollector<>();
+            for (int i : group) {
+                errors.addAll(errors(component[i]));
+                for (int successor : successors[i]) {
+                    R result = results.get(component[successor]);
+                    if (result != null) {
+                        errors.addAll(errorsOf(result));
+                    }
+                }
+            }
+
+            R result = toResult(errors);
+            for (int i : group) {
+                publishResult(component[i], result);
+            }
+        }
+    }
+
+    private boolean isInside(F reference, int id) {
+        return reference.getTarget() >= 0 && componentOf[reference.getTarget()] == id;
+    }
+
+    private void publishResult(int node, R result) {
+        results.set(node, result);
+        publish(node, result);
+    }
+
+    private R resultOf(F reference) {
+        return reference.getTarget() >= 0 ? results.get(reference.getTarget()) : reference.getResult();
+    }
+
+    // direct fields bring in all the errors of their type, collections only get flagged
+    private void merge(F reference, R referenced, ErrorCollector<E> errors) {
+        Collection<E> referencedErrors = errorsOf(referenced);
+        if (!reference.isElement()) {
+            errors.addAll(referencedErrors);
+        } else if (!referencedErrors.isEmpty()) {
+            addElementError(reference, errors);
+        }
+    }
+
+    /**
+     * Iterative version of Tarjan's algorithm, returns the strongly connected components
+     * in reverse topological order (i.e. each component comes after all the ones it refers to)
+     */
+    static List<int[]> components(int[][] successors) {
+        int count = successors.length;
+        int[] index = new int[count];
+        int[] lowLink = new int[count];
+        boolean[] onStack = new boolean[count];
+        Arrays.fill(index, -1);
+
+        // component stack and explicit call stack, each node is pushed only once
+        int[] stack = new int[count];
+        int stackSize = 0;
+        int[] callNode = new int[count];
+        int[] callEdge = new int[count];
+        int callSize = 0;
+
+        int counter = 0;
+        List<int[]> components = new ArrayList<>();
+
+        for (int start = 0; start < count; start++) {
+            if (index[start] >= 0) {
+                continue;
+            }
+
+            index[start] = lowLink[start] = counter++;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            callNode[callSize] = start;
+            callEdge[callSize++] = 0;
+
+            while (callSize > 0) {
+                int node = callNode[callSize - 1];
+
+                if (callEdge[callSize - 1] < successors[node].length) {
+                    int successor = successors[node][callEdge[callSize - 1]++];
+                    if (index[successor] < 0) {
+                        index[successor] = lowLink[successor] = counter++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        callNode[callSize] = successor;
+                        callEdge[callSize++] = 0;
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+                } else {
+                    callSize--;
+                    if (callSize > 0) {
+                        int caller = callNode[callSize - 1];
+                        lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                    }
+
+                    if (lowLink[node] == index[node]) {
+                        int end = stackSize;
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                        } while (member != node);
+                        components.add(Arrays.copyOfRange(stack, stackSize, end));
+                    }
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Reference from one type to another
+     */
+    interface Reference<R> {
+
+        /**
+         * @return Node in the same pass, -1 if the verdict was known from before
+         */
+        int getTarget();
+
+        /**
+         * @return Verdict known from before, only if there is no target node
+         */
+        R getResult();
+
+        /**
+         * @return True for a reference to the type stored in a collection
+         */
+        boolean isElement();
+    }
+}
@@ -0,0 +1,47 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Internal mutable accumulator of validation errors, used for the duration of a single walk.
+ * Errors are only copied once, when frozen into the public immutable result
+ *
+ * @author Jacek Furmankiewicz
+ */
+class ErrorCollector<E> {
+
+    private final Set<E> errors = new LinkedHashSet<>();
+
+    ErrorCollector() {}
+
+    ErrorCollector(Collection<? extends E> errors) {
+        addAll(errors);
+    }
+
+    void add(E error) {
+        errors.add(error);
+    }
+
+    void addAll(Collection<? extends E> errors) {
+        this.errors.addAll(errors);
+    }
+
+    void addAll(ErrorCollector<? extends E> collector) {
+        errors.addAll(collector.errors);
+    }
+
+    boolean isEmpty() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Freezes all the errors collected so far
+     */
+    ImmutableSet<E> toSet() {
+        return ImmutableSet.copyOf(errors);
+    }
+}
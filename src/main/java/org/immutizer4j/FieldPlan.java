@@ -0,0 +1,70 @@
+package org.immutizer4j;
+
+import java.lang.reflect.Field;
+
+/**
+ * Everything about the instance fields of a class (including its super classes) that the validation needs,
+ * compiled once per class into flat arrays indexed by field: modifiers and kinds as bit flags,
+ * the type each field refers to (with type variables bound by the class hierarchy resolved)
+ * and the types stored in collection fields.
+ *
+ * The arrays are shared, never modify them.
+ *
+ * @author Jacek Furmankiewicz
+ */
+final class FieldPlan {
+
+    static final int FINAL = 1;
+    static final int PRIMITIVE = 1 << 1;
+    static final int ARRAY = 1 << 2;
+    static final int COLLECTION = 1 << 3;
+    // refers to a type variable (or an array of it) that is not bound by the class hierarchy
+    static final int UNRESOLVED_TYPE_VARIABLE = 1 << 4;
+    // collections only: some of the stored types cannot be determined (wildcards, unbound type variables, raw types)
+    static final int WILDCARD = 1 << 5;
+    // collections only: arrays are stored in the collection
+    static final int ARRAY_ELEMENTS = 1 << 6;
+
+    static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+    private final Field[] fields;
+    private final int[] flags;
+    // type each field refers to (component type for arrays)
+    private final Class<?>[] targets;
+    // collections only: the types stored in the collection, including the ones stored in nested collections
+    private final Class<?>[][] elementTypes;
+    // collections only: collections nested in the collection
+    private final Class<?>[][] nestedCollectionTypes;
+
+    FieldPlan(Field[] fields, int[] flags, Class<?>[] targets, Class<?>[][] elementTypes, Class<?>[][] nestedCollectionTypes) {
+        this.fields = fields;
+        this.flags = flags;
+        this.targets = targets;
+        this.elementTypes = elementTypes;
+        this.nestedCollectionTypes = nestedCollectionTypes;
+    }
+
+    int size() {
+        return fields.length;
+    }
+
+    Field field(int index) {
+        return fields[index];
+    }
+
+    boolean is(int index, int flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    Class<?> target(int index) {
+        return targets[index];
+    }
+
+    Class<?>[] elementTypes(int index) {
+        return elementTypes[index];
+    }
+
+    Class<?>[] nestedCollectionTypes(int index) {
+        return nestedCollectionTypes[index];
+    }
+}
@@ -0,0 +1,179 @@
+package org.immutizer4j;
+
+import com.google.common.reflect.TypeToken;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves the generic types of all the fields in a class hierarchy, binding the type variables
+ * through the type arguments the class passes to its super classes, e.g. for
+ * <pre>
+ * class Prices extends Container&lt;BigDecimal&gt; {}
+ * </pre>
+ * a field "T value" declared in Container is seen as a BigDecimal from Prices.
+ * Collection type arguments are walked as a tree, so nested collections get resolved as well.
+ *
+ * The fields are resolved once per class into a FieldPlan, the same for all Immutizer instances
+ * (they do not depend on any settings).
+ *
+ * @author Jacek Furmankiewicz
+ */
+class GenericTypeResolver {
+
+    private static final ClassValue<FieldPlan> PLANS = new ClassValue<FieldPlan>() {
+        @Override
+        protected FieldPlan computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private GenericTypeResolver() {}
+
+    /**
+     * @return All the instance fields of the type and its super classes, as seen from the type
+     */
+    static FieldPlan getFieldPlan(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * @return True if the type is a type variable or an array of one (e.g. T or T[])
+     */
+    static boolean isTypeVariable(Type type) {
+        Type actualType = type;
+        while (actualType instanceof GenericArrayType) {
+            actualType = ((GenericArrayType) actualType).getGenericComponentType();
+        }
+        return actualType instanceof TypeVariable;
+    }
+
+    private static FieldPlan resolve(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        Class<?> current = type;
+        while (current != null && !current.equals(Object.class)) {
+            for(Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(field);
+                }
+            }
+
+            // move up the class hierarchy level
+            current = current.getSuperclass();
+        }
+
+        int size = fields.size();
+        int[] flags = new int[size];
+        Class<?>[] targets = new Class<?>[size];
+        Class<?>[][] elementTypes = new Class<?>[size][];
+        Class<?>[][] nestedCollectionTypes = new Class<?>[size][];
+
+        TypeToken<?> token = TypeToken.of(type);
+        for (int i = 0; i < size; i++) {
+            Field field = fields.get(i);
+            Type resolved = token.resolveType(field.getGenericType()).getType();
+
+            // arrays are checked on their own, what matters is the type stored in them
+            Type actualType = resolved;
+            while (actualType instanceof GenericArrayType) {
+                actualType = ((GenericArrayType) actualType).getGenericComponentType();
+            }
+            Class<?> target = TypeToken.of(actualType).getRawType();
+            while (target.isArray()) {
+                target = target.getComponentType();
+            }
+            targets[i] = target;
+
+            int fieldFlags = 0;
+            if (Modifier.isFinal(field.getModifiers())) {
+                fieldFlags |= FieldPlan.FINAL;
+            }
+            if (field.getType().isPrimitive()) {
+                fieldFlags |= FieldPlan.PRIMITIVE;
+            }
+            if (field.getType().isArray()) {
+                fieldFlags |= FieldPlan.ARRAY;
+            }
+            if (actualType instanceof TypeVariable) {
+                fieldFlags |= FieldPlan.UNRESOLVED_TYPE_VARIABLE;
+            }
+
+            elementTypes[i] = FieldPlan.NO_TYPES;
+            nestedCollectionTypes[i] = FieldPlan.NO_TYPES;
+            if (Collection.class.isAssignableFrom(field.getType())) {
+                fieldFlags |= FieldPlan.COLLECTION;
+
+                ElementTypes elements = new ElementTypes();
+                if (resolved instanceof ParameterizedType) {
+                    for(Type argument : ((ParameterizedType) resolved).getActualTypeArguments()) {
+                        elements.add(argument);
+                    }
+                } else {
+                    // raw collection
+                    elements.wildcard = true;
+                }
+
+                elementTypes[i] = elements.types.toArray(FieldPlan.NO_TYPES);
+                nestedCollectionTypes[i] = elements.collections.toArray(FieldPlan.NO_TYPES);
+                if (elements.wildcard) {
+                    fieldFlags |= FieldPlan.WILDCARD;
+                }
+                if (elements.arrays) {
+                    fieldFlags |= FieldPlan.ARRAY_ELEMENTS;
+                }
+            }
+            flags[i] = fieldFlags;
+        }
+
+        return new FieldPlan(fields.toArray(new Field[size]), flags, targets, elementTypes, nestedCollectionTypes);
+    }
+
+    /**
+     * Everything found in the tree of the collection type arguments
+     */
+    private static class ElementTypes {
+        private final List<Class<?>> types = new ArrayList<>();
+        private final List<Class<?>> collections = new ArrayList<>();
+        private boolean arrays;
+        private boolean wildcard;
+
+        void add(Type type) {
+            if (type instanceof Class) {
+                Class<?> clazz = (Class<?>) type;
+                if (clazz.isArray()) {
+                    arrays = true;
+                    add(clazz.getComponentType());
+                } else if (Collection.class.isAssignableFrom(clazz) || clazz.getTypeParameters().length > 0) {
+                    // raw type, no way to tell what is stored in it
+                    wildcard = true;
+                } else {
+                    types.add(clazz);
+                }
+            } else if (type instanceof GenericArrayType) {
+                arrays = true;
+                add(((GenericArrayType) type).getGenericComponentType());
+            } else if (type instanceof ParameterizedType) {
+                Class<?> raw = (Class<?>) ((ParameterizedType) type).getRawType();
+                if (Collection.class.isAssignableFrom(raw)) {
+                    collections.add(raw);
+                } else {
+                    // generic class that is not a collection, gets validated on its own like any other
+                    types.add(raw);
+                }
+                for(Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                    add(argument);
+                }
+            } else {
+                // wildcards and type variables not bound by the class hierarchy
+                wildcard = true;
+            }
+        }
+    }
+}
@@ -14,5 +14,6 @@ public class ImmutabilityViolationException extends RuntimeException {
     public ImmutabilityViolationException(ValidationResult result) {
         super(result.toString());
         this.validationResult  = result;
+        ValidationEvents.INSTANCE.violationThrown(result);
     }
 }
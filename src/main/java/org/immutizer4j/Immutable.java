@@ -0,0 +1,20 @@
+package org.immutizer4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a type to be validated for immutability at compile time by the immutizer4j-processor
+ * annotation processor. Any violation fails the build, verified types get registered so that
+ * Immutizer can answer for them at runtime without any reflection
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Immutable {
+}
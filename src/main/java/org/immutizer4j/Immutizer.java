@@ -1,19 +1,36 @@
 package org.immutizer4j;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.lang.reflect.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Performs object graph check for immutability
@@ -28,12 +45,24 @@ public class Immutizer {
 
     // additional types that we were told are immutable
     private final ImmutableSet<Class<?>> safeTypes;
+    // memoized decision for every type checked against the safe types
+    private final Predicate<Class<?>> safeTypeIndex;
 
-    private final ConcurrentMap<Class<?>,ValidationResult> validationCache =
-            new MapMaker()
-            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
-            .initialCapacity(100)
-            .makeMap();
+    private final ValidationCache validationCache;
+    // memoized per runtime class, for checking live instances
+    private final InstancePlanCache instancePlans;
+
+    // types verified at compile time by the annotation processor, never need to be walked
+    private final ImmutableSet<String> verifiedTypes;
+    // verdicts computed during the build or by previous runs, for types whose class files have not changed since
+    private final VerdictStore precomputedVerdicts;
+    // verdicts kept on disk between restarts, null if not enabled
+    private final PersistentVerdictStore persistentCache;
+
+    // gets told about every violation found
+    private final ViolationReporter violationReporter;
+    // gets told about every walk of a type graph
+    private final ValidationListener validationListener;
 
     /**
      * Constructor. Assumes strict mode
@@ -66,11 +95,50 @@ public class Immutizer {
      * @param safeTypes Additional safe types (e.g. Joda DateTime objects, etc) for us to recognize
      */
     public Immutizer(boolean strict, Class<?> ...safeTypes) {
-        this.strict = strict;
+        this(builder().strict(strict).safeTypes(safeTypes));
+    }
+
+    // all the constructors end up here
+    private Immutizer(Builder builder) {
+        this.strict = builder.strict;
         this.safeTypes = ImmutableSet.<Class<?>>builder()
                 .addAll(ImmutizerConstants.KNOWN_TYPES)
-                .addAll(Sets.newHashSet(safeTypes))
+                .addAll(builder.safeTypes)
                 .build();
+        this.safeTypeIndex = SafeTypeIndex.of(this.safeTypes);
+        this.violationReporter = builder.violationReporter;
+        this.validationListener = builder.validationListener;
+        this.validationCache = builder.createCache();
+        this.instancePlans = InstancePlanIndex.of(this);
+        this.verifiedTypes = builder.useVerifiedTypeRegistries ? loadVerifiedTypes() : ImmutableSet.of();
+        this.persistentCache = (builder.persistentCacheFile != null) ? MappedVerdictFile.open(builder.persistentCacheFile, this) : null;
+        VerdictStore manifests = builder.useValidationManifests ? loadValidationManifests() : VerdictStore.NONE;
+        this.precomputedVerdicts = (persistentCache != null) ? VerdictStore.firstOf(Arrays.asList(manifests, persistentCache)) : manifests;
+    }
+
+    /**
+     * Builder for all the possible Immutizer settings, e.g.
+     * <pre>
+     * Immutizer immutizer = Immutizer.builder().strict(false).cacheMode(CacheMode.CLASS_VALUE).build();
+     * </pre>
+     * @return New builder with default settings (strict, no custom types, concurrent map cache)
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return If we run in strict mode or not (which allows arrays of immutable types to be allowed)
+     */
+    public boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * @return All the types we recognize as immutable, both the default ones and the custom ones
+     */
+    public ImmutableSet<Class<?>> getSafeTypes() {
+        return safeTypes;
     }
 
     /**
@@ -103,164 +171,558 @@ public class Immutizer {
     /**
      * Performs type validation for immutability across the entire object graph
      * Results are cached, so the overhead of the reflection scar are incurred
-     * only once
+     * only once. This applies to every nested type reached during the walk as well,
+     * so a type referenced from many others is only ever walked once
      * @param clazz Entity to check
      * @return Validation result
      */
     public ValidationResult getValidationResult(@NonNull Class<?> clazz) {
-        ValidationResult result = validationCache.get(clazz);
-        if (result == null) {
-            result = validationCache.computeIfAbsent(clazz, c -> validateType(c));
+        // concurrent requests for the same type wait for a single walk
+        return validationCache.get(clazz, this::validateType);
+    }
+
+    /**
+     * Validates the live instance and throws exception if violation found.
+     * Unlike verify(Object), checks what the fields actually hold (see getInstanceValidationResult())
+     * @throws ImmutabilityViolationException
+     */
+    public void verifyInstance(@NonNull Object instance) {
+        ValidationResult result = getInstanceValidationResult(instance);
+        if (!result.isValid()) {
+            throw new ImmutabilityViolationException(result);
         }
-        return result;
     }
 
-    // performs actual walk down the graph hierarchy starting from the root object
-    private ValidationResult validateType(Class<?> type) {
-        if (!isSafeType(type)) {
-            return validateType(type, new ValidationResult(ImmutableSet.<ValidationError>of()));
-        } else {
-            // safe types do not need to be tested
-            return new ValidationResult(ImmutableSet.<ValidationError>of());
+    /**
+     * Performs validation of a live instance across the entire object graph reachable from it.
+     * Fields declared as interfaces, Object or generic types (which can never be proven safe from the type alone)
+     * get checked for the runtime classes they actually hold, the same for the objects stored in collections and arrays.
+     * The work done for every runtime class is cached, instances of final classes whose whole type graph is
+     * immutable are not looked into at all
+     * @param instance Object to check
+     * @return Validation result
+     */
+    public ValidationResult getInstanceValidationResult(@NonNull Object instance) {
+        // the verdict of a sealed class is already known, no need to set up a walk
+        if (InstanceGraphWalker.isSealed(this, instance)) {
+            return ValidationResult.VALID;
         }
+        return new InstanceGraphWalker(this).walk(instance);
     }
 
-    // performs actual walk down the graph hierarchy within an existing validation process
-    private ValidationResult validateType(Class<?> type, ValidationResult result) {
-        Class<?> current = type;
-        while (current != null && !current.equals(Object.class)) {
+    /**
+     * Validates many types at once and throws exception on the first one that has a violation
+     * (in the order they were passed in). Validation is spread across the common ForkJoinPool
+     * @throws ImmutabilityViolationException
+     */
+    public void verifyAll(@NonNull Collection<? extends Class<?>> classes) {
+        verifyAll(classes, ForkJoinPool.commonPool());
+    }
 
-            Field[] fields = current.getDeclaredFields();
-            for(Field field : fields) {
-                result = validateField(field, result);
+    /**
+     * Validates many types at once and throws exception on the first one that has a violation
+     * (in the order they were passed in)
+     * @param executor Executor to spread the validation across
+     * @throws ImmutabilityViolationException
+     */
+    public void verifyAll(@NonNull Collection<? extends Class<?>> classes, @NonNull Executor executor) {
+        for(ValidationResult result : getValidationResults(classes, executor).values()) {
+            if (!result.isValid()) {
+                throw new ImmutabilityViolationException(result);
             }
+        }
+    }
 
-            // move up the class hierarchy level
-            current = current.getSuperclass();
+    /**
+     * Performs type validation for many types at once, spread across the common ForkJoinPool.
+     * Ideal for checking all the cached/message types during startup
+     * @param classes Entities to check
+     * @return Validation result for each entity, in the order they were passed in
+     */
+    public ImmutableMap<Class<?>,ValidationResult> getValidationResults(@NonNull Collection<? extends Class<?>> classes) {
+        return getValidationResults(classes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Performs type validation for many types at once, spread across the executor.
+     * All the types without a known verdict are walked together in a single pass, so types shared
+     * between the object graphs are validated only once (the fields of the types found in each step
+     * of the walk get validated in parallel)
+     * @param classes Entities to check
+     * @param executor Executor to spread the validation across
+     * @return Validation result for each entity, in the order they were passed in
+     */
+    public ImmutableMap<Class<?>,ValidationResult> getValidationResults(@NonNull Collection<? extends Class<?>> classes,
+                                                                        @NonNull Executor executor) {
+        Map<Class<?>,ValidationResult> results = new LinkedHashMap<>();
+        List<Class<?>> pending = new ArrayList<>();
+        for(Class<?> clazz : classes) {
+            if (clazz == null) {
+                throw new NullPointerException("clazz was null");
+            }
+            if (!results.containsKey(clazz)) {
+                // known verdicts go through the cache as usual, the rest gets filled in by the walk
+                boolean known = isSafeType(clazz) || getCachedResult(clazz) != null;
+                results.put(clazz, known ? getValidationResult(clazz) : null);
+                if (!known) {
+                    pending.add(clazz);
+                }
+            }
         }
 
-        return result;
+        if (!pending.isEmpty()) {
+            results.putAll(walk(pending, walker -> walker.walk(pending, executor)));
+        }
+        return ImmutableMap.copyOf(results);
     }
 
-    // performs all the validations for a single field
-    private ValidationResult validateField(Field field, ValidationResult result) {
+    /**
+     * Wraps an in-memory cache so that only immutable keys and values can get into it: put(), putIfAbsent(),
+     * replace(), putAll() and the values computed by compute(), computeIfAbsent(), computeIfPresent(), merge()
+     * and replaceAll() get verified (by type) before they reach the map, and are rejected with
+     * ImmutabilityViolationException otherwise. Writes via the views (e.g. Map.Entry.setValue()) are not checked.
+     * Repeated writes of the same runtime classes cost just a reference comparison
+     * @param map Map to guard, all writes should go through the returned map from now on
+     * @return Verifying view of the map
+     */
+    public <K,V> ConcurrentMap<K,V> guard(@NonNull ConcurrentMap<K,V> map) {
+        return new VerifyingConcurrentMap<>(map, this);
+    }
+
+    /**
+     * Wraps a queue used for passing messages between threads so that only immutable messages can get into it:
+     * add(), offer(), put() and addAll() verify each message (by type) before it reaches the queue,
+     * and reject it with ImmutabilityViolationException otherwise.
+     * Repeated messages of the same runtime class cost just a reference comparison
+     * @param queue Queue to guard, all producers should use the returned queue from now on
+     * @return Verifying view of the queue
+     */
+    public <E> BlockingQueue<E> guard(@NonNull BlockingQueue<E> queue) {
+        return new VerifyingBlockingQueue<>(queue, this);
+    }
 
-        if (!Modifier.isStatic(field.getModifiers())) {
+    /**
+     * Wraps an executor so that every task gets verified (by type) before it is handed over to another thread.
+     * For lambdas and anonymous classes that means everything they captured has to be immutable
+     * @param executor Executor to guard
+     * @return Executor rejecting mutable tasks with ImmutabilityViolationException
+     */
+    public Executor guardExecutor(@NonNull Executor executor) {
+        LastClassVerifier tasks = new LastClassVerifier(this);
+        return command -> executor.execute(tasks.verify(command));
+    }
 
-            // basic final check
-            if (!Modifier.isFinal(field.getModifiers())){
-                result = addError(field, ViolationType.NON_FINAL_FIELD, result);
+    /**
+     * Wraps a message handler so that every message gets verified (by type) before it is handled
+     * @param consumer Message handler to guard
+     * @return Handler rejecting mutable messages with ImmutabilityViolationException
+     */
+    public <T> Consumer<T> guardConsumer(@NonNull Consumer<T> consumer) {
+        LastClassVerifier messages = new LastClassVerifier(this);
+        return message -> consumer.accept(messages.verify(message));
+    }
+
+    /**
+     * Verifies the type of every object in a batch of messages, each distinct runtime class is resolved only once
+     * per batch. Null elements are skipped
+     * @throws ImmutabilityViolationException For the first object whose type is not immutable
+     */
+    public void verifyEach(@NonNull Iterable<?> instances) {
+        Class<?> first = null;
+        Class<?> last = null;
+        Set<Class<?>> verified = null;
+        for(Object instance : instances) {
+            if (instance == null || instance.getClass() == last) {
+                continue;
             }
 
-            result = handleCollections(field, result);
-            result = handleArrays(field, result);
+            // batches usually hold just one class, the set only gets created once a second one shows up
+            last = instance.getClass();
+            if (first == null) {
+                first = last;
+                verify(last);
+            } else if (last != first) {
+                if (verified == null) {
+                    verified = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                if (verified.add(last)) {
+                    verify(last);
+                }
+            }
+        }
+    }
 
-            // for custom types, recursively check its own fields
-            Class<?> actualType = getActualType(field,result);
-            result = validateIfGenericsReference(field,actualType,result);
+    /**
+     * Snapshot of the validation cache statistics, useful for sizing bounded caches and monitoring
+     * @return Current hits, misses, evictions, size and total time spent walking type graphs
+     */
+    public ValidationCacheStats getCacheStats() {
+        return validationCache.getStats();
+    }
 
-            if (!isSafeType(actualType) && !isRecursive(field)) {
-                result = validateType(actualType, result);
+    /**
+     * Evicts the cached verdict of the type and of every cached type that reached it during validation
+     * (directly or via other types), so that only the affected part of the type graph gets walked again.
+     * Meant for hot reloads and plugins, instead of creating a new Immutizer.
+     * Verdicts taken from validation manifests, the persistent cache or the compile time registries are not tracked,
+     * they are checked against the class files anyway
+     * @param clazz Type that changed
+     * @return All the types whose cached verdicts were evicted, empty if none
+     */
+    public ImmutableSet<Class<?>> invalidate(@NonNull Class<?> clazz) {
+        ImmutableSet<Class<?>> evicted = ImmutableSet.copyOf(validationCache.invalidate(clazz));
+        for(Class<?> type : evicted) {
+            instancePlans.invalidate(type);
+        }
+        return evicted;
+    }
+
+    /**
+     * Writes the verdicts of all the types validated so far into the persistent cache file,
+     * so the next start of the application does not need to walk them again.
+     * Usually called once all the types have been validated during startup
+     * @throws IllegalStateException If the persistent cache was not enabled via the builder
+     */
+    public void savePersistentCache() throws IOException {
+        Preconditions.checkState(persistentCache != null, "Persistent cache is not enabled");
+        persistentCache.save(this);
+    }
+
+    // performs actual walk down the graph hierarchy starting from the root object
+    private ValidationResult validateType(Class<?> type) {
+        Object event = ValidationEvents.INSTANCE.beginCacheMiss(type);
+        try {
+            if (!isSafeType(type) && !verifiedTypes.contains(type.getName())) {
+                ValidationResult precomputed = precomputedVerdicts.get(type);
+                return (precomputed != null) ? precomputed : walk(type);
+            } else {
+                // safe types do not need to be tested
+                return ValidationResult.VALID;
+            }
+        } finally {
+            ValidationEvents.INSTANCE.endCacheMiss(event);
+        }
+    }
+
+    private ValidationResult walk(Class<?> type) {
+        return walk(Collections.singletonList(type), walker -> Collections.singletonMap(type, walker.walk(type))).get(type);
+    }
+
+    // walks the type graphs, measured only if someone is listening (under the first root type, if there are many)
+    private Map<Class<?>,ValidationResult> walk(List<Class<?>> roots,
+                                                Function<TypeGraphWalker,Map<Class<?>,ValidationResult>> pass) {
+        Class<?> type = roots.get(0);
+        Object event = ValidationEvents.INSTANCE.beginWalk(type);
+        long start = (validationListener != ValidationListener.NONE) ? System.nanoTime() : 0;
+
+        TypeGraphWalker walker = new TypeGraphWalker(this);
+        Map<Class<?>,ValidationResult> results = pass.apply(walker);
+        ValidationResult result = results.get(type);
+
+        ValidationEvents.INSTANCE.endWalk(event, result, walker.getFieldCount());
+        if (validationListener != ValidationListener.NONE) {
+            validationListener.typeValidated(new TypeValidationMetrics(type, System.nanoTime() - start,
+                    walker.getFieldCount(), walker.getTypeCount() - 1, walker.getMaxDepth(), result.isValid()));
+        }
+        return results;
+    }
+
+    // returns a verdict already known from previous walks, null if the type was never validated
+    ValidationResult getCachedResult(Class<?> type) {
+        if (verifiedTypes.contains(type.getName())) {
+            return ValidationResult.VALID;
+        }
+        ValidationResult cached = validationCache.getIfPresent(type);
+        if (cached == null) {
+            cached = precomputedVerdicts.get(type);
+            if (cached != null) {
+                cacheResult(type, cached);
+            }
+        }
+        return cached;
+    }
+
+    // collects the types from all the compile time registries that were verified with rules at least as strict as ours
+    private ImmutableSet<String> loadVerifiedTypes() {
+        Set<String> safeTypeNames = safeTypes.stream().map(Class::getName).collect(Collectors.toSet());
+
+        ImmutableSet.Builder<String> types = ImmutableSet.builder();
+        for(ClassPathArtifacts.Registry registry : ClassPathArtifacts.getRegistries(getClassLoader())) {
+            if ((registry.isStrict() || !strict) && safeTypeNames.containsAll(registry.getSafeTypes())) {
+                types.addAll(registry.getVerifiedTypes());
+            } else {
+                log.debug("Ignoring verified types from {}, they were verified with different rules", registry.getName());
             }
         }
+        return types.build();
+    }
+
+    // the manifests from all the jars that were computed with our settings
+    private VerdictStore loadValidationManifests() {
+        List<ValidationManifest> manifests = new ArrayList<>();
+        for(Map.Entry<String,ValidationManifest> entry : ClassPathArtifacts.getManifests(getClassLoader()).entrySet()) {
+            if (entry.getValue().matches(this)) {
+                manifests.add(entry.getValue());
+            } else {
+                log.debug("Ignoring validation manifest {}, it was computed with different settings", entry.getKey());
+            }
+        }
+        return VerdictStore.firstOf(manifests);
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return (classLoader != null) ? classLoader : Immutizer.class.getClassLoader();
+    }
+
+    // per class part of checking live instances
+    InstancePlan getInstancePlan(Class<?> type) {
+        return instancePlans.get(type);
+    }
+
+    // makes a verdict reached during a walk available to all subsequent ones
+    void cacheResult(Class<?> type, ValidationResult result) {
+        validationCache.put(type, result);
+    }
+
+    // the same, together with the types the verdict was computed from
+    void cacheResult(Class<?> type, ValidationResult result, Collection<Class<?>> dependencies) {
+        validationCache.putDependencies(type, dependencies);
+        validationCache.put(type, result);
+    }
+
+    // validates all the fields in the type hierarchy, referenced types are only recorded for the walker to follow
+    void validateType(Class<?> type, TypeGraphWalker.TypeNode node) {
+        FieldPlan plan = GenericTypeResolver.getFieldPlan(type);
+        for (int i = 0; i < plan.size(); i++) {
+            validateField(plan, i, node);
+        }
+    }
+
+    // performs all the validations for a single field
+    private void validateField(FieldPlan plan, int index, TypeGraphWalker.TypeNode node) {
+        ErrorCollector<ValidationError> errors = node.getErrors();
+
+        // basic final check
+        if (!plan.is(index, FieldPlan.FINAL)){
+            addError(plan.field(index), ViolationType.NON_FINAL_FIELD, errors);
+        }
+
+        handleCollections(plan, index, errors, node);
+        handleArrays(plan, index, errors);
 
-        return result;
+        // for custom types, let the walker check its own fields
+        // (type variables bound by the class hierarchy are already resolved to the actual type)
+        Class<?> actualType = plan.target(index);
+        validateIfGenericsReference(plan, index, errors);
 
+        if (!isSafeType(actualType)) {
+            node.addReference(actualType);
+        }
     }
 
     // common logic for handling collection tyoes
-    private ValidationResult handleCollections(Field field, ValidationResult result) {
-        if (Collection.class.isAssignableFrom(field.getType())) {
+    private void handleCollections(FieldPlan plan, int index, ErrorCollector<ValidationError> errors, TypeGraphWalker.TypeNode node) {
+        if (plan.is(index, FieldPlan.COLLECTION)) {
+            Field field = plan.field(index);
 
             // check if collection is immutable to begin with
             if (!isSafeType(field.getType())) {
-                result = addError(field, ViolationType.MUTABLE_TYPE, result);
+                addError(field, ViolationType.MUTABLE_TYPE, errors);
             }
 
             // check if the type stored in the collection is immutable (works around type erasure)
-            ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
-            for(Type type : parameterizedType.getActualTypeArguments()) {
-                try {
-                    Class<?> genericType = Class.forName(type.getTypeName());
-
-                    ValidationResult nestedResult = getValidationResult(genericType);
-                    if (!nestedResult.isValid()) {
-                        result = addError(field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION, result);
-                    }
-                } catch (ClassNotFoundException e) {
-                    result = addError(field, ViolationType.GENERIC_TYPE_WITH_WILDCARD, result);
+            if (plan.is(index, FieldPlan.WILDCARD)) {
+                addError(field, ViolationType.GENERIC_TYPE_WITH_WILDCARD, errors);
+            }
+            for(Class<?> nestedCollection : plan.nestedCollectionTypes(index)) {
+                if (!isSafeType(nestedCollection)) {
+                    addError(field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION, errors);
                 }
             }
-        }
+            if (plan.is(index, FieldPlan.ARRAY_ELEMENTS) && strict) {
+                addError(field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION, errors);
+            }
 
-        return result;
+            // the walker flags the field once it knows the verdict of the stored type
+            for(Class<?> elementType : plan.elementTypes(index)) {
+                if (!isSafeType(elementType)) {
+                    node.addElementReference(field, elementType);
+                }
+            }
+        }
     }
 
     // arrays (can be allowed if we are not running in strict mode)
-    private ValidationResult handleArrays(Field field, ValidationResult result) {
-        if (field.getType().isArray() && strict) {
-            result = addError(field,ViolationType.MUTABLE_ARRAY,result);
+    private void handleArrays(FieldPlan plan, int index, ErrorCollector<ValidationError> errors) {
+        if (plan.is(index, FieldPlan.ARRAY) && strict) {
+            addError(plan.field(index), ViolationType.MUTABLE_ARRAY, errors);
         }
-        return result;
     }
 
-    // validates if the field type can be safely assigned to any of the
-    private boolean isSafeType(Class<?> type) {
-        for(Class<?> clazz : safeTypes) {
-            if (clazz.equals(type) || clazz.isAssignableFrom(type)) {
-                return true;
-            }
-        }
-        return false;
+    // validates if the field type can be safely assigned to any of the safe types
+    boolean isSafeType(Class<?> type) {
+        return safeTypeIndex.test(type);
+    }
+
+    // standard handler for reporting errors, collected until the walk is done
+    void addError(Field field, ViolationType violationType, ErrorCollector<ValidationError> errors) {
+        violationReporter.report(field.getDeclaringClass(), field.getName(), violationType);
+        errors.add(new ValidationError(field.getDeclaringClass(), field.getName(), violationType));
     }
 
-    // checks if a field refers recursively to the containing/declaring class
-    private boolean isRecursive(Field field) {
-        return field.getType().equals(field.getDeclaringClass());
+    public ValidationResult validateIfGenericsReference(Field field, Class<?> actualType, ValidationResult result) {
+        ErrorCollector<ValidationError> errors = new ErrorCollector<>(result.getErrors());
+        if (Object.class.equals(actualType) && GenericTypeResolver.isTypeVariable(field.getGenericType())) {
+            addError(field, ViolationType.UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE, errors);
+        }
+        return ValidationResult.of(errors);
     }
 
-    // standard handler for reporting errors, returns a new immutable ValidationResult instance
-    private ValidationResult addError(Field field, ViolationType violationType, ValidationResult result) {
-        // log it as long as it is not marked as @ImmutizerIgnore
-        ValidationError error = new ValidationError(field.getDeclaringClass(), field.getName(), violationType);
-        log.error("Immutability violation: {}", error);
-        return result.addError(error);
+    private void validateIfGenericsReference(FieldPlan plan, int index, ErrorCollector<ValidationError> errors) {
+        // reference to a generic type, erased all the way down to Object
+        // unfortunately there is no information left on the actual type, need to flag this is a violation
+        if (plan.is(index, FieldPlan.UNRESOLVED_TYPE_VARIABLE) && Object.class.equals(plan.target(index))) {
+            addError(plan.field(index), ViolationType.UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE, errors);
+        }
     }
 
     /**
-     * Jumps hoops around various data in Java reflection to find the actual underlying type
+     * Builder for all the possible Immutizer settings
      */
-    @SneakyThrows // checked exception begone!
-    private Class<?> getActualType(Field field, ValidationResult result) {
-        // for custom types, recursively check its own fields
-        // some reflection magic for dealing with arrays vs regular types
-        Class<?> actualType = (field.getType().isArray()) ? field.getType().getComponentType() : field.getType();
+    public static class Builder {
+
+        private boolean strict = true;
+        private final Set<Class<?>> safeTypes = Sets.newHashSet();
+        private CacheMode cacheMode = CacheMode.CONCURRENT_MAP;
+        private long maximumCacheSize = -1;
+        private long expireCacheAfterAccessNanos = -1;
+        private boolean useVerifiedTypeRegistries = true;
+        private boolean useValidationManifests = true;
+        private Path persistentCacheFile;
+        private ViolationReporter violationReporter = ViolationReporter.SLF4J;
+        private ValidationListener validationListener = ValidationListener.NONE;
+
+        private Builder() {}
+
+        /**
+         * @param strict Controls if we run in strict mode or not (which allows arrays of immutable types to be allowed)
+         */
+        public Builder strict(boolean strict) {
+            this.strict = strict;
+            return this;
+        }
 
-        return actualType;
-    }
+        /**
+         * @param safeTypes Additional safe types (e.g. Joda DateTime objects, etc) for us to recognize
+         */
+        public Builder safeTypes(@NonNull Class<?> ...safeTypes) {
+            this.safeTypes.addAll(Arrays.asList(safeTypes));
+            return this;
+        }
 
-    @SneakyThrows // checked exception begone!
-    public ValidationResult validateIfGenericsReference(Field field, Class<?> actualType, ValidationResult result) {
-        if (Object.class.equals(actualType)) {
-
-            // let's see if we are dealing with a reference to a generics type
-            // this info is hidden by the JVM in the internal private Field.signature field
-            // the class name is embedded in there, but alas, without the package name (OK, Oracle, that is just stupid)
-            Field signatureField = field.getClass().getDeclaredField(ImmutizerConstants.SIGNATURE_FIELD);
-            signatureField.setAccessible(true); // private is for losers, real programmers get to it anyway
-
-            // try to extract actual class name via
-            String sig = (String) signatureField.get(field);
-            // T = var, [T = array of vars
-            if ((sig.startsWith("T") || sig.startsWith("[T")) && sig.endsWith(";")) {
-                // OK, reference to a generic type
-                // unfortunately there is no information on the package of the type so we cannot get to it
-                // need to flag this is a violation
-                result = addError(field, ViolationType.UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE, result);
-            }
+        /**
+         * @param cacheMode How validation results get cached
+         */
+        public Builder cacheMode(@NonNull CacheMode cacheMode) {
+            this.cacheMode = cacheMode;
+            return this;
+        }
+
+        /**
+         * Limits the number of cached results, the least recently used ones get evicted first.
+         * Only supported for the concurrent map cache
+         * @param maximumCacheSize Maximum number of cached types
+         */
+        public Builder maximumCacheSize(long maximumCacheSize) {
+            Preconditions.checkArgument(maximumCacheSize >= 0, "maximumCacheSize cannot be negative");
+            this.maximumCacheSize = maximumCacheSize;
+            return this;
+        }
+
+        /**
+         * Evicts cached results that have not been accessed for a while.
+         * Only supported for the concurrent map cache
+         * @param duration Time after last access
+         * @param unit Unit of the duration
+         */
+        public Builder expireCacheAfterAccess(long duration, @NonNull TimeUnit unit) {
+            Preconditions.checkArgument(duration >= 0, "duration cannot be negative");
+            this.expireCacheAfterAccessNanos = unit.toNanos(duration);
+            return this;
         }
 
-        return result;
+        /**
+         * Controls if types verified at compile time by the annotation processor are trusted without
+         * any reflection (default), or get walked at runtime like any other type.
+         * Unlike validation manifests, registries know the types by name only: there are no class files to hash
+         * while compiling, so a verified type is trusted even if it (or a type it depends on, e.g. from a library)
+         * is a different version at runtime than the one it was verified against. Turn this off if the runtime
+         * classpath can differ from the compile one. The registries are only looked up once per class loader,
+         * by the first Immutizer built with it
+         * @param useVerifiedTypeRegistries Use the registries generated by the annotation processor or not
+         */
+        public Builder useVerifiedTypeRegistries(boolean useVerifiedTypeRegistries) {
+            this.useVerifiedTypeRegistries = useVerifiedTypeRegistries;
+            return this;
+        }
+
+        /**
+         * Controls if verdicts precomputed during the build (META-INF/immutizer4j/verdicts.bin) are used
+         * for types whose class files have not changed (default), or all types get walked at runtime.
+         * The class path is only scanned for them once per class loader, by the first Immutizer built with it
+         * @param useValidationManifests Use the validation manifests or not
+         */
+        public Builder useValidationManifests(boolean useValidationManifests) {
+            this.useValidationManifests = useValidationManifests;
+            return this;
+        }
+
+        /**
+         * Keeps the verdicts on disk between restarts, in a memory mapped file. They are loaded at startup
+         * for every type whose class files have not changed and get written via Immutizer.savePersistentCache().
+         * A corrupted file or one written with different settings is ignored.
+         * The mapped file is never replaced while in use, saves alternate between it and a sibling file with the ".alt" suffix
+         * @param file File to keep the verdicts in
+         */
+        public Builder persistentCache(@NonNull Path file) {
+            this.persistentCacheFile = file;
+            return this;
+        }
+
+        /**
+         * @param violationReporter Gets told about every violation found, by default they get logged as errors.
+         *                          Use ViolationReporter.NONE if you only look at the validation results
+         */
+        public Builder violationReporter(@NonNull ViolationReporter violationReporter) {
+            this.violationReporter = violationReporter;
+            return this;
+        }
+
+        /**
+         * @param validationListener Gets told about every walk of a type graph, with the time it took,
+         *                           number of fields and types walked and depth reached
+         */
+        public Builder validationListener(@NonNull ValidationListener validationListener) {
+            this.validationListener = validationListener;
+            return this;
+        }
+
+        public Immutizer build() {
+            return new Immutizer(this);
+        }
+
+        private ValidationCache createCache() {
+            boolean bounded = maximumCacheSize >= 0 || expireCacheAfterAccessNanos >= 0;
+            if (cacheMode == CacheMode.CLASS_VALUE) {
+                Preconditions.checkState(!bounded, "ClassValue cache cannot be bounded");
+                return new ClassValueValidationCache();
+            } else if (bounded) {
+                return new BoundedValidationCache(maximumCacheSize, expireCacheAfterAccessNanos);
+            } else {
+                return new MapValidationCache();
+            }
+        }
     }
 
 }
@@ -22,8 +22,6 @@ class ImmutizerConstants {
     static final String MSG_SEPARATOR = " : ";
     static final String NEWLINE = "\n ";
 
-    static final String SIGNATURE_FIELD = "signature";
-
     /**
      * Types the immutizer recognizes by default as immutable (if flagged as final)
      */
@@ -0,0 +1,199 @@
+package org.immutizer4j;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Single validation pass over the graph of live objects reachable from a root instance.
+ *
+ * Looks at the runtime classes actually stored in the fields, collections and arrays, so fields declared
+ * as interfaces, Object or erased generic types get checked for what they really hold.
+ * Unlike the type level walk, objects stored in collections are checked like any other object,
+ * so their violations get reported as well.
+ * Every object is visited once (by identity), so cyclic object graphs are fine, and the per-class work
+ * is memoized in instance plans. Objects of sealed classes are never looked into at all.
+ *
+ * A pass can be given a time budget, in which case it stops once the budget runs out
+ * and reports whatever it has found so far.
+ *
+ * Not thread-safe, a new instance is created for every pass.
+ *
+ * @author Jacek Furmankiewicz
+ */
+class InstanceGraphWalker {
+
+    // the clock is only checked every so many objects, it is not free either
+    private static final int CLOCK_CHECK_MASK = 31;
+
+    private final Immutizer immutizer;
+    private final boolean bounded;
+    private final long deadline;
+
+    // the first object pushed, the visited set is only created once there is a second one
+    private Object first;
+    private Set<Object> visited;
+    private final Deque<Object> worklist = new ArrayDeque<>();
+    private final ErrorCollector<ValidationError> errors = new ErrorCollector<>();
+
+    // false if the pass ran out of time before reaching every object
+    @Getter
+    private boolean complete = true;
+
+    InstanceGraphWalker(Immutizer immutizer) {
+        this.immutizer = immutizer;
+        this.bounded = false;
+        this.deadline = 0;
+    }
+
+    /**
+     * @param budgetNanos Time budget for the pass, starting now
+     */
+    InstanceGraphWalker(Immutizer immutizer, long budgetNanos) {
+        this.immutizer = immutizer;
+        this.bounded = true;
+        this.deadline = System.nanoTime() + budgetNanos;
+    }
+
+    /**
+     * Validates the instance and everything reachable from it
+     */
+    ValidationResult walk(Object root) {
+        push(root);
+        // checked before the first visit too, so a budget that is already used up does not visit anything
+        for (int visits = 0; !worklist.isEmpty(); visits++) {
+            if (bounded && (visits & CLOCK_CHECK_MASK) == 0 && System.nanoTime() - deadline >= 0) {
+                complete = false;
+                break;
+            }
+            visit(worklist.pop());
+        }
+        return ValidationResult.of(errors);
+    }
+
+    private void visit(Object value) {
+        Class<?> type = value.getClass();
+
+        if (type.isArray()) {
+            if (!type.getComponentType().isPrimitive()) {
+                for(Object element : (Object[]) value) {
+                    push(element);
+                }
+            }
+            return;
+        } else if (value instanceof Collection && immutizer.isSafeType(type)) {
+            for (Object element : (Collection<?>) value) {
+                push(element);
+            }
+            return;
+        }
+
+        InstancePlan plan = immutizer.getInstancePlan(type);
+        errors.addAll(plan.getErrors().getErrors());
+        if (plan.getFallback() != null) {
+            errors.addAll(plan.getFallback().getErrors());
+            return;
+        }
+
+        Field[] references = plan.getReferences();
+        MethodHandle[] getters = plan.getGetters();
+        for (int i = 0; i < references.length; i++) {
+            Field field = references[i];
+            Object fieldValue = get(getters[i], value);
+            if (fieldValue != null && fieldValue.getClass().isArray() && !field.getType().isArray() && immutizer.isStrict()) {
+                // array hiding behind an Object or generic field
+                immutizer.addError(field, ViolationType.MUTABLE_ARRAY, errors);
+            }
+
+            if (fieldValue instanceof Collection) {
+                handleCollection(field, (Collection<?>) fieldValue);
+            } else {
+                push(fieldValue);
+            }
+        }
+    }
+
+    // the collection itself has to be immutable, the elements get checked like any other object
+    private void handleCollection(Field field, Collection<?> collection) {
+        if (!immutizer.isSafeType(collection.getClass())) {
+            // not safe to even iterate over it
+            immutizer.addError(field, ViolationType.MUTABLE_TYPE, errors);
+            return;
+        }
+
+        boolean flagged = false;
+        for (Object element : collection) {
+            if (!flagged && element != null && hasOwnViolations(element)) {
+                immutizer.addError(field, ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION, errors);
+                flagged = true;
+            }
+            push(element);
+        }
+    }
+
+    private void push(Object value) {
+        if (value != null && !isSealed(immutizer, value) && markVisited(value)) {
+            worklist.push(value);
+        }
+    }
+
+    // most graphs worth walking have a single object, e.g. a message whose fields all hold safe types
+    private boolean markVisited(Object value) {
+        if (visited == null) {
+            if (first == null) {
+                first = value;
+                return true;
+            } else if (first == value) {
+                return false;
+            }
+            visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            visited.add(first);
+        }
+        return visited.add(value);
+    }
+
+    /**
+     * @return True if there is nothing to find out from the object, nor anything it refers to
+     * (safe types, apart from collections whose elements still have to be checked, and sealed classes)
+     */
+    static boolean isSealed(Immutizer immutizer, Object value) {
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return false;
+        } else if (immutizer.isSafeType(type)) {
+            return !(value instanceof Collection);
+        }
+        return immutizer.getInstancePlan(type).isSealed();
+    }
+
+    // violations in the object itself, not counting anything it refers to
+    private boolean hasOwnViolations(Object element) {
+        Class<?> type = element.getClass();
+        if (type.isArray()) {
+            return immutizer.isStrict();
+        } else if (immutizer.isSafeType(type)) {
+            return false;
+        }
+
+        InstancePlan plan = immutizer.getInstancePlan(type);
+        return !plan.isSealed() && (!plan.getErrors().isValid() || (plan.getFallback() != null && !plan.getFallback().isValid()));
+    }
+
+    // exact invocation of the (Object)Object getter, no access checks and no boxing
+    private static Object get(MethodHandle getter, Object instance) {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to read field via " + getter, e);
+        }
+    }
+}
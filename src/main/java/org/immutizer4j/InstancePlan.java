@@ -0,0 +1,42 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+
+/**
+ * Everything needed for checking instances of a single runtime class, computed once per class
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+class InstancePlan {
+
+    /**
+     * Nothing reachable from instances of the class can ever be mutable: the class is valid and every type
+     * its fields can point to is final, so there is nothing left to find out from the instance
+     */
+    private boolean sealed;
+
+    /**
+     * Violations in the fields of the class itself (non-final fields, arrays in strict mode)
+     */
+    private ValidationResult errors;
+
+    /**
+     * Fields whose values have to be checked as well (never primitive ones), already accessible
+     */
+    private Field[] references;
+
+    /**
+     * Getter of each of the references, (Object)Object, so reading them needs no access checks or boxing
+     */
+    private MethodHandle[] getters;
+
+    /**
+     * Type level verdict, used instead of the instance when its fields cannot be read
+     * (e.g. JDK internals on Java 9+), null if they can
+     */
+    private ValidationResult fallback;
+}
@@ -0,0 +1,19 @@
+package org.immutizer4j;
+
+/**
+ * Instance plans memoized per runtime class
+ *
+ * @author Jacek Furmankiewicz
+ */
+interface InstancePlanCache {
+
+    /**
+     * Returns the plan for the class, computing it if needed
+     */
+    InstancePlan get(Class<?> type);
+
+    /**
+     * Drops the plan for the class, it gets computed again on the next lookup
+     */
+    void invalidate(Class<?> type);
+}
@@ -0,0 +1,139 @@
+package org.immutizer4j;
+
+import com.google.common.collect.Iterables;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Memoized instance plan for every runtime class, so checking an instance never looks at
+ * the declared fields of a class more than once
+ *
+ * @author Jacek Furmankiewicz
+ */
+class InstancePlanIndex extends ClassValue<InstancePlan> implements InstancePlanCache {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    // all the getters get adapted to the same type, so they can be invoked exactly without knowing the field
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final String INACCESSIBLE_OBJECT_EXCEPTION = "java.lang.reflect.InaccessibleObjectException";
+
+    private final Immutizer immutizer;
+
+    private InstancePlanIndex(Immutizer immutizer) {
+        this.immutizer = immutizer;
+    }
+
+    /**
+     * Creates a new index using the rules of the Immutizer
+     */
+    static InstancePlanCache of(Immutizer immutizer) {
+        return new InstancePlanIndex(immutizer);
+    }
+
+    @Override
+    public void invalidate(Class<?> type) {
+        remove(type);
+    }
+
+    @Override
+    protected InstancePlan computeValue(Class<?> type) {
+        boolean sealed = isSealed(type);
+        ErrorCollector<ValidationError> errors = new ErrorCollector<>();
+        List<Field> references = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+
+        try {
+            FieldPlan plan = GenericTypeResolver.getFieldPlan(type);
+            for (int i = 0; i < plan.size(); i++) {
+                Field field = plan.field(i);
+                if (!plan.is(i, FieldPlan.FINAL)) {
+                    immutizer.addError(field, ViolationType.NON_FINAL_FIELD, errors);
+                }
+                if (plan.is(i, FieldPlan.ARRAY) && immutizer.isStrict()) {
+                    immutizer.addError(field, ViolationType.MUTABLE_ARRAY, errors);
+                }
+
+                // safe collections still need their elements checked, primitives never hold anything
+                if (!plan.is(i, FieldPlan.PRIMITIVE) && (plan.is(i, FieldPlan.COLLECTION) || !immutizer.isSafeType(field.getType()))) {
+                    field.setAccessible(true);
+                    references.add(field);
+                    getters.add(LOOKUP.unreflectGetter(field).asType(GETTER_TYPE));
+                }
+            }
+        } catch (IllegalAccessException | SecurityException e) {
+            return inaccessible(type, sealed, errors);
+        } catch (RuntimeException e) {
+            // fields of the JDK classes are not accessible on Java 9+ (the exception type does not exist on Java 8)
+            if (!e.getClass().getName().equals(INACCESSIBLE_OBJECT_EXCEPTION)) {
+                throw e;
+            }
+            return inaccessible(type, sealed, errors);
+        }
+
+        return new InstancePlan(sealed, ValidationResult.of(errors), references.toArray(new Field[references.size()]),
+                getters.toArray(new MethodHandle[getters.size()]), null);
+    }
+
+    // the fields cannot be read, so instances fall back to the verdict of their class
+    private InstancePlan inaccessible(Class<?> type, boolean sealed, ErrorCollector<ValidationError> errors) {
+        return new InstancePlan(sealed, ValidationResult.of(errors), new Field[0], new MethodHandle[0], immutizer.getValidationResult(type));
+    }
+
+    // valid and every type reachable via the declared fields is final, so no instance can hold anything else
+    private boolean isSealed(Class<?> root) {
+        if (!immutizer.getValidationResult(root).isValid()) {
+            return false;
+        }
+
+        Set<Class<?>> visited = new HashSet<>();
+        Deque<Class<?>> worklist = new ArrayDeque<>();
+        worklist.add(root);
+
+        while (!worklist.isEmpty()) {
+            Class<?> type = worklist.poll();
+            if (immutizer.isSafeType(type) || !visited.add(type)) {
+                continue;
+            }
+
+            FieldPlan plan = GenericTypeResolver.getFieldPlan(type);
+            for (int i = 0; i < plan.size(); i++) {
+                Class<?> fieldType = plan.target(i);
+
+                if (Collection.class.isAssignableFrom(fieldType)) {
+                    // valid collections are always safe ones, their elements have to be final types
+                    if (!plan.is(i, FieldPlan.COLLECTION) || plan.is(i, FieldPlan.WILDCARD)) {
+                        return false;
+                    }
+                    for(Class<?> elementType : Iterables.concat(Arrays.asList(plan.nestedCollectionTypes(i)), Arrays.asList(plan.elementTypes(i)))) {
+                        if (!isFinal(elementType)) {
+                            return false;
+                        }
+                        worklist.add(elementType);
+                    }
+                } else if (!fieldType.isPrimitive() && !immutizer.isSafeType(fieldType)) {
+                    if (!isFinal(fieldType)) {
+                        return false;
+                    }
+                    worklist.add(fieldType);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isFinal(Class<?> type) {
+        return immutizer.isSafeType(type) || (Modifier.isFinal(type.getModifiers()) && !type.isInterface());
+    }
+}
@@ -0,0 +1,112 @@
+package org.immutizer4j;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events. Whether each event is enabled is checked on its EventType before anything
+ * gets created, so when no recording has them enabled they do not allocate at all
+ *
+ * @author Jacek Furmankiewicz
+ */
+class JfrValidationEvents implements ValidationEvents {
+
+    // reflect the settings of all the running recordings, also the ones started later
+    private static final EventType CACHE_MISS = EventType.getEventType(CacheMissEvent.class);
+    private static final EventType WALK = EventType.getEventType(WalkEvent.class);
+    private static final EventType VIOLATION = EventType.getEventType(ViolationEvent.class);
+
+    @Override
+    public Object beginCacheMiss(Class<?> type) {
+        if (!CACHE_MISS.isEnabled()) {
+            return null;
+        }
+        CacheMissEvent event = new CacheMissEvent();
+        event.type = type;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endCacheMiss(Object handle) {
+        if (handle != null) {
+            CacheMissEvent event = (CacheMissEvent) handle;
+            event.end();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginWalk(Class<?> type) {
+        if (!WALK.isEnabled()) {
+            return null;
+        }
+        WalkEvent event = new WalkEvent();
+        event.type = type;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endWalk(Object handle, ValidationResult result, int fieldCount) {
+        if (handle != null) {
+            WalkEvent event = (WalkEvent) handle;
+            event.end();
+            if (event.shouldCommit()) {
+                event.errorCount = result.getErrors().size();
+                event.fieldCount = fieldCount;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void violationThrown(ValidationResult result) {
+        if (!VIOLATION.isEnabled()) {
+            return;
+        }
+        ViolationEvent event = new ViolationEvent();
+        if (event.shouldCommit()) {
+            event.errorCount = result.getErrors().size();
+            event.errors = result.toString();
+            event.commit();
+        }
+    }
+
+    @Name("org.immutizer4j.CacheMiss")
+    @Label("Validation Cache Miss")
+    @Description("Validation of a type that was not cached yet")
+    @Category("Immutizer4j")
+    static class CacheMissEvent extends Event {
+        @Label("Type")
+        Class<?> type;
+    }
+
+    @Name("org.immutizer4j.Walk")
+    @Label("Type Graph Walk")
+    @Description("Validation of a root type and all the types reachable from it that were not validated yet")
+    @Category("Immutizer4j")
+    static class WalkEvent extends Event {
+        @Label("Type")
+        Class<?> type;
+        @Label("Error Count")
+        int errorCount;
+        @Label("Field Count")
+        int fieldCount;
+    }
+
+    @Name("org.immutizer4j.Violation")
+    @Label("Immutability Violation")
+    @Description("ImmutabilityViolationException thrown")
+    @Category("Immutizer4j")
+    static class ViolationEvent extends Event {
+        @Label("Error Count")
+        int errorCount;
+        @Label("Errors")
+        String errors;
+    }
+}
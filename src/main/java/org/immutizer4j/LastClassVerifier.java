@@ -0,0 +1,36 @@
+package org.immutizer4j;
+
+/**
+ * Type level verification of the objects passing through a single spot (map keys, map values, queue messages, etc.),
+ * which usually see the same runtime class over and over. The last verified class is remembered, so for it
+ * the check is a single reference comparison, everything else goes to the Immutizer cache.
+ *
+ * Thread-safe: the last class is published without any synchronization on purpose, a thread that does not see
+ * the latest one simply asks the Immutizer cache again
+ *
+ * @author Jacek Furmankiewicz
+ */
+class LastClassVerifier {
+
+    private final Immutizer immutizer;
+    private Class<?> lastVerified;
+
+    LastClassVerifier(Immutizer immutizer) {
+        this.immutizer = immutizer;
+    }
+
+    /**
+     * Verifies the type of the object, nulls are left for the caller to deal with
+     * @throws ImmutabilityViolationException
+     */
+    <T> T verify(T value) {
+        if (value != null) {
+            Class<?> type = value.getClass();
+            if (type != lastVerified) {
+                immutizer.verify(type);
+                lastVerified = type;
+            }
+        }
+        return value;
+    }
+}
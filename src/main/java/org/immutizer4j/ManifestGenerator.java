@@ -0,0 +1,93 @@
+package org.immutizer4j;
+
+import com.google.common.base.Splitter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for generating the validation manifest of compiled classes, used by the Gradle plugin:
+ * <pre>
+ * java -cp &lt;runtime classpath&gt; org.immutizer4j.ManifestGenerator [--strict=false] [--safeTypes=a.B,c.D] &lt;output file&gt; &lt;classes dir&gt;...
+ * </pre>
+ * All the classes found in the directories are validated in parallel, the classes need to be on the classpath.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+public class ManifestGenerator {
+
+    private static final String STRICT = "--strict=";
+    private static final String SAFE_TYPES = "--safeTypes=";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private ManifestGenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        // the violations end up in the manifest, no need to log every single one of them
+        Immutizer.Builder builder = Immutizer.builder()
+                .useValidationManifests(false)
+                .violationReporter(ViolationReporter.NONE);
+        List<String> paths = new ArrayList<>();
+        ClassLoader classLoader = ManifestGenerator.class.getClassLoader();
+
+        for(String arg : args) {
+            if (arg.startsWith(STRICT)) {
+                builder.strict(Boolean.parseBoolean(arg.substring(STRICT.length())));
+            } else if (arg.startsWith(SAFE_TYPES)) {
+                for(String safeType : Splitter.on(',').trimResults().omitEmptyStrings().split(arg.substring(SAFE_TYPES.length()))) {
+                    builder.safeTypes(Class.forName(safeType, false, classLoader));
+                }
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("Usage: ManifestGenerator [--strict=false] [--safeTypes=a.B,c.D] <output file> <classes dir>...");
+        }
+
+        List<Class<?>> classes = new ArrayList<>();
+        for(String directory : paths.subList(1, paths.size())) {
+            for(String className : findClasses(Paths.get(directory))) {
+                try {
+                    classes.add(Class.forName(className, false, classLoader));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    log.warn("Skipping {}, unable to load it: {}", className, e.toString());
+                }
+            }
+        }
+
+        Path output = Paths.get(paths.get(0));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            ValidationManifest.write(builder.build(), classes, out);
+        }
+        log.info("Validation manifest for {} classes written to {}", classes.size(), output);
+    }
+
+    // names of all the classes compiled into the directory
+    private static List<String> findClasses(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files
+                    .map(file -> directory.relativize(file).toString())
+                    .filter(name -> name.endsWith(CLASS_SUFFIX) && !name.endsWith("package-info.class") && !name.endsWith("module-info.class"))
+                    .map(name -> name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('\\', '/').replace('/', '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
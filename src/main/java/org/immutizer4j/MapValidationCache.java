@@ -0,0 +1,47 @@
+package org.immutizer4j;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validation cache backed by a concurrent map, holds on to every type strongly
+ *
+ * @author Jacek Furmankiewicz
+ */
+class MapValidationCache extends AbstractValidationCache {
+
+    private final ConcurrentMap<Class<?>,AtomicReference<CompletableFuture<ValidationResult>>> results =
+            new MapMaker()
+            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+            .initialCapacity(100)
+            .makeMap();
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slot(Class<?> type) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = results.get(type);
+        if (slot == null) {
+            // creating an empty slot is trivial, nothing ever gets computed inside the map
+            slot = results.computeIfAbsent(type, t -> new AtomicReference<>());
+        }
+        return slot;
+    }
+
+    @Override
+    protected AtomicReference<CompletableFuture<ValidationResult>> slotIfPresent(Class<?> type) {
+        return results.get(type);
+    }
+
+    @Override
+    protected boolean remove(Class<?> type) {
+        AtomicReference<CompletableFuture<ValidationResult>> slot = results.remove(type);
+        return slot != null && slot.get() != null;
+    }
+
+    @Override
+    protected long size() {
+        return results.size();
+    }
+}
@@ -0,0 +1,150 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Persistent verdicts stored in the same format as the validation manifest, but in a file of its own.
+ *
+ * The file is memory mapped and verdicts are read straight from the mapping, so a restart of unchanged code
+ * does not walk anything. Every verdict is still checked against the class files it depends on, and a file
+ * that is corrupted or was written with different settings is ignored, so the worst case is always a fresh walk.
+ *
+ * A mapped file cannot be replaced or deleted on Windows until the mapping gets garbage collected, so the verdicts
+ * alternate between two files: the configured one and a sibling with the ".alt" suffix. The one with the higher
+ * generation in its header gets mapped and save() always writes the other one with the next generation,
+ * the file this instance has mapped is never touched.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+class MappedVerdictFile implements PersistentVerdictStore {
+
+    private static final String ALTERNATE_SUFFIX = ".alt";
+
+    // where save() writes to, never the mapped file
+    private final Path target;
+    private final long generation;
+    // verdicts from the previous run, null if there were none that could be used
+    private final ValidationManifest manifest;
+    // every type the file had no valid verdict for, saved on the next save() together with the ones it had
+    private final Set<Class<?>> validated = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+    // if anything got added to validated since the last save()
+    private volatile boolean changed;
+
+    private MappedVerdictFile(Path target, long generation, ValidationManifest manifest) {
+        this.target = target;
+        this.generation = generation;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Maps the newer of the file and its alternate, if it was written with the same settings as the Immutizer has
+     */
+    static MappedVerdictFile open(Path file, Immutizer immutizer) {
+        Path alternate = file.resolveSibling(file.getFileName() + ALTERNATE_SUFFIX);
+        // only the headers get read, anything that does not look like a verdict file is not mapped and can be replaced
+        long fileGeneration = generation(file);
+        long alternateGeneration = generation(alternate);
+        Path newer = (alternateGeneration > fileGeneration) ? alternate : file;
+        Path other = (newer == file) ? alternate : file;
+        long generation = Math.max(fileGeneration, alternateGeneration);
+        if (generation < 0) {
+            return new MappedVerdictFile(file, 0, null);
+        }
+
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(newer, StandardOpenOption.READ)) {
+            ValidationManifest manifest = ValidationManifest.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (manifest.matches(immutizer)) {
+                return new MappedVerdictFile(other, generation + 1, manifest);
+            }
+            log.info("Ignoring persistent validation cache {}, it was written with different settings", newer);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring corrupted persistent validation cache {}", newer, e);
+        }
+        // mapped but unusable, still cannot be replaced
+        return new MappedVerdictFile(other, generation + 1, null);
+    }
+
+    @Override
+    public ValidationResult get(Class<?> type) {
+        ValidationResult result = (manifest != null) ? manifest.get(type) : null;
+        if (result == null) {
+            validated.add(type);
+            changed = true;
+        }
+        return result;
+    }
+
+    @Override
+    public void save(Immutizer immutizer) throws IOException {
+        if (!changed) {
+            // the file already has everything
+            return;
+        }
+        changed = false;
+
+        try {
+            write(immutizer);
+        } catch (IOException | RuntimeException e) {
+            // nothing got saved
+            changed = true;
+            throw e;
+        }
+    }
+
+    private void write(Immutizer immutizer) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        // written next to the file and moved over it, so readers never see a partial file
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                ValidationManifest.write(immutizer, ImmutableList.copyOf(validated), manifest, generation, out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // -1 if the file is not there or is not a verdict file
+    private static long generation(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(ValidationManifest.headerSize());
+            channel.read(header, 0);
+            header.flip();
+            long generation = ValidationManifest.generation(header);
+            if (generation < 0) {
+                log.warn("Ignoring corrupted persistent validation cache {}", file);
+            }
+            return generation;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable persistent validation cache {}", file, e);
+            return -1;
+        }
+    }
+}
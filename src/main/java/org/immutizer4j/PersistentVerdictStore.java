@@ -0,0 +1,16 @@
+package org.immutizer4j;
+
+import java.io.IOException;
+
+/**
+ * Verdicts kept on disk between restarts of the application
+ *
+ * @author Jacek Furmankiewicz
+ */
+interface PersistentVerdictStore extends VerdictStore {
+
+    /**
+     * Writes the verdicts of all the types validated so far, together with the still valid ones it already had
+     */
+    void save(Immutizer immutizer) throws IOException;
+}
@@ -0,0 +1,37 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.function.Predicate;
+
+/**
+ * Memoized per-class decision if a type can be assigned to any of the safe types.
+ * The scan across all the safe types is done once per class, every lookup after that is O(1)
+ *
+ * @author Jacek Furmankiewicz
+ */
+class SafeTypeIndex extends ClassValue<Boolean> {
+
+    private final ImmutableSet<Class<?>> safeTypes;
+
+    private SafeTypeIndex(ImmutableSet<Class<?>> safeTypes) {
+        this.safeTypes = safeTypes;
+    }
+
+    /**
+     * Creates a new index over the safe types
+     */
+    static Predicate<Class<?>> of(ImmutableSet<Class<?>> safeTypes) {
+        return new SafeTypeIndex(safeTypes)::get;
+    }
+
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+        for(Class<?> clazz : safeTypes) {
+            if (clazz.equals(type) || clazz.isAssignableFrom(type)) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+}
@@ -0,0 +1,42 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+/**
+ * Result of a single call to the sampled verifier
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class SampledValidationResult {
+
+    /**
+     * Shared result for all the instances that were not picked for checking
+     */
+    static final SampledValidationResult SKIPPED = new SampledValidationResult(false, false, ValidationResult.VALID);
+
+    /**
+     * Shared result for all the checked instances with nothing to look into (safe or sealed classes)
+     */
+    static final SampledValidationResult SEALED = new SampledValidationResult(true, true, ValidationResult.VALID);
+
+    /**
+     * If the instance was picked for checking at all
+     */
+    private boolean checked;
+    /**
+     * If every object reachable from the instance got checked within the time budget
+     */
+    private boolean complete;
+    /**
+     * Violations found, only the ones found before the time budget ran out if the check is not complete
+     */
+    private ValidationResult validationResult;
+
+    /**
+     * @return False only if a violation was found
+     */
+    public boolean isValid() {
+        return validationResult.isValid();
+    }
+}
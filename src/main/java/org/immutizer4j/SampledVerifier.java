@@ -0,0 +1,185 @@
+package org.immutizer4j;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.NonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instance verification for hot paths (cache puts, actor messages, etc.), where checking every single
+ * instance in full is too expensive. Only some of the instances get checked (every Nth one, a random fraction
+ * and/or at most so many per second) and every check can be given a time budget, after which it stops
+ * and reports whatever it has found so far. E.g.
+ * <pre>
+ * SampledVerifier verifier = SampledVerifier.builder(immutizer)
+ *      .everyNth(100)
+ *      .maxChecksPerSecond(1000)
+ *      .budget(50, TimeUnit.MICROSECONDS)
+ *      .build();
+ * </pre>
+ * Thread-safe, meant to be shared.
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class SampledVerifier {
+
+    private final Immutizer immutizer;
+    private final int everyNth;
+    private final double fraction;
+    private final RateLimiter rateLimiter;
+    private final long budgetNanos;
+
+    // calls since the last check, counted per thread so that hot paths never contend on it
+    private final ThreadLocal<int[]> calls;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder violations = new LongAdder();
+    private final LongAdder incomplete = new LongAdder();
+
+    private SampledVerifier(Builder builder) {
+        this.immutizer = builder.immutizer;
+        this.everyNth = builder.everyNth;
+        this.fraction = builder.fraction;
+        this.rateLimiter = (builder.maxChecksPerSecond > 0) ? RateLimiter.create(builder.maxChecksPerSecond) : null;
+        this.budgetNanos = builder.budgetNanos;
+        // the very first call on each thread gets checked
+        this.calls = ThreadLocal.withInitial(() -> new int[]{everyNth - 1});
+    }
+
+    /**
+     * @param immutizer Immutizer doing the actual checks
+     * @return New builder, by default every instance gets checked in full
+     */
+    public static Builder builder(@NonNull Immutizer immutizer) {
+        return new Builder(immutizer);
+    }
+
+    /**
+     * Checks the instance (see Immutizer.getInstanceValidationResult()), if it gets picked for checking
+     * @return Result of the check, never throws
+     */
+    public SampledValidationResult check(@NonNull Object instance) {
+        if (!isPicked()) {
+            skipped.increment();
+            return SampledValidationResult.SKIPPED;
+        }
+
+        if (InstanceGraphWalker.isSealed(immutizer, instance)) {
+            checked.increment();
+            return SampledValidationResult.SEALED;
+        }
+
+        InstanceGraphWalker walker = (budgetNanos >= 0) ? new InstanceGraphWalker(immutizer, budgetNanos) : new InstanceGraphWalker(immutizer);
+        ValidationResult result = walker.walk(instance);
+
+        checked.increment();
+        if (!result.isValid()) {
+            violations.increment();
+        }
+        if (!walker.isComplete()) {
+            incomplete.increment();
+        }
+        return new SampledValidationResult(true, walker.isComplete(), result);
+    }
+
+    /**
+     * Checks the instance, if it gets picked for checking, and throws exception if violation found
+     * (even if the check ran out of its time budget)
+     * @throws ImmutabilityViolationException
+     */
+    public void verify(@NonNull Object instance) {
+        SampledValidationResult result = check(instance);
+        if (!result.isValid()) {
+            throw new ImmutabilityViolationException(result.getValidationResult());
+        }
+    }
+
+    /**
+     * Snapshot of the statistics, for monitoring how much coverage the sampling gives
+     * @return Current checked, skipped, violation and incomplete counts
+     */
+    public SamplingStats getStats() {
+        return new SamplingStats(checked.sum(), skipped.sum(), violations.sum(), incomplete.sum());
+    }
+
+    // all the configured conditions have to agree
+    private boolean isPicked() {
+        if (everyNth > 1) {
+            int[] counter = calls.get();
+            if (++counter[0] < everyNth) {
+                return false;
+            }
+            counter[0] = 0;
+        }
+        if (fraction < 1.0 && ThreadLocalRandom.current().nextDouble() >= fraction) {
+            return false;
+        }
+        return rateLimiter == null || rateLimiter.tryAcquire();
+    }
+
+    /**
+     * Builder for all the possible sampling settings
+     */
+    public static class Builder {
+
+        private final Immutizer immutizer;
+        private int everyNth = 1;
+        private double fraction = 1.0;
+        private double maxChecksPerSecond = -1;
+        private long budgetNanos = -1;
+
+        private Builder(Immutizer immutizer) {
+            this.immutizer = immutizer;
+        }
+
+        /**
+         * Checks only every Nth instance (counted separately on each thread)
+         * @param everyNth 1 to check every instance
+         */
+        public Builder everyNth(int everyNth) {
+            Preconditions.checkArgument(everyNth >= 1, "everyNth has to be at least 1");
+            this.everyNth = everyNth;
+            return this;
+        }
+
+        /**
+         * Checks only a random fraction of the instances
+         * @param fraction Between 0.0 (exclusive) and 1.0 (inclusive)
+         */
+        public Builder fraction(double fraction) {
+            Preconditions.checkArgument(fraction > 0 && fraction <= 1.0, "fraction has to be in (0.0, 1.0]");
+            this.fraction = fraction;
+            return this;
+        }
+
+        /**
+         * Limits the number of checks, no matter how many instances get passed in
+         * @param maxChecksPerSecond Maximum number of checks per second, across all threads
+         */
+        public Builder maxChecksPerSecond(double maxChecksPerSecond) {
+            Preconditions.checkArgument(maxChecksPerSecond > 0, "maxChecksPerSecond has to be positive");
+            this.maxChecksPerSecond = maxChecksPerSecond;
+            return this;
+        }
+
+        /**
+         * Stops every check once it runs out of time and reports the violations found so far.
+         * The first check of a new class can still take longer, while its per-class plan is computed
+         * @param duration Time budget of a single check
+         * @param unit Unit of the duration
+         */
+        public Builder budget(long duration, @NonNull TimeUnit unit) {
+            Preconditions.checkArgument(duration >= 0, "duration cannot be negative");
+            this.budgetNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public SampledVerifier build() {
+            return new SampledVerifier(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the sampled verifier statistics
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class SamplingStats {
+
+    /**
+     * Number of instances that got checked
+     */
+    private long checkedCount;
+    /**
+     * Number of instances that were not picked for checking
+     */
+    private long skippedCount;
+    /**
+     * Number of checked instances with at least one violation
+     */
+    private long violationCount;
+    /**
+     * Number of checks that ran out of their time budget before reaching every object
+     */
+    private long incompleteCount;
+
+    /**
+     * Ratio of instances that got checked, 0.0 if there were none at all
+     */
+    public double coverage() {
+        long instances = checkedCount + skippedCount;
+        return (instances == 0) ? 0.0 : (double) checkedCount / instances;
+    }
+}
@@ -0,0 +1,22 @@
+package org.immutizer4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs every violation as an error, under the Immutizer logger.
+ * Nothing gets formatted if the error level is disabled
+ *
+ * @author Jacek Furmankiewicz
+ */
+class Slf4jViolationReporter implements ViolationReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(Immutizer.class);
+
+    @Override
+    public void report(Class<?> type, String fieldName, ViolationType violationType) {
+        if (log.isErrorEnabled()) {
+            log.error("Immutability violation: {}.{} : {}", type.getName(), fieldName, violationType);
+        }
+    }
+}
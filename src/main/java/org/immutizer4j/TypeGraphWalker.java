@@ -0,0 +1,253 @@
+package org.immutizer4j;
+
+import com.google.common.base.Throwables;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Single validation pass over the graph of types reachable from a root type (or many of them at once).
+ *
+ * Never recurses: all the types not validated yet are first discovered via an explicit worklist,
+ * then their strongly connected components are resolved in reverse topological order,
+ * so cyclic references (A -> B -> A, parent/child back-references, etc.) and very deep graphs
+ * are handled in linear time without growing the thread stack.
+ *
+ * Every type reached during the pass gets its own verdict published to the Immutizer cache.
+ * Not thread-safe, a new instance is created for every pass.
+ *
+ * @author Jacek Furmankiewicz
+ */
+@RequiredArgsConstructor
+class TypeGraphWalker {
+
+    private final Immutizer immutizer;
+
+    // visited set for this pass, maps each type to its position in the worklist
+    private final Map<Class<?>, Integer> visited = new HashMap<>();
+    private final List<TypeNode> nodes = new ArrayList<>();
+
+    // for the metrics of the pass
+    @Getter
+    private int fieldCount;
+    @Getter
+    private int maxDepth;
+
+    /**
+     * Validates the root type and every type reachable from it that does not have a known verdict yet
+     */
+    ValidationResult walk(Class<?> root) {
+        visit(root, 0);
+
+        // discovery: the worklist grows as new types are found, each type gets validated exactly once
+        for (int i = 0; i < nodes.size(); i++) {
+            TypeNode node = nodes.get(i);
+            immutizer.validateType(node.getType(), node);
+            discover(node);
+        }
+
+        // resolution: components come out with all the types they depend on already resolved
+        new Resolution().resolve();
+
+        return nodes.get(0).getResult();
+    }
+
+    /**
+     * Validates many root types together, every type reachable from any of them is validated exactly once.
+     * Discovery goes in rounds, the types found by the previous round get validated in parallel
+     * @param executor Executor to spread the validation of each round across
+     * @return Verdict of each root type
+     */
+    Map<Class<?>, ValidationResult> walk(Collection<Class<?>> roots, Executor executor) {
+        for (Class<?> root : roots) {
+            visit(root, 0);
+        }
+
+        for (int start = 0; start < nodes.size(); ) {
+            int end = nodes.size();
+            CompletableFuture<?>[] round = new CompletableFuture<?>[end - start];
+            for (int i = start; i < end; i++) {
+                TypeNode node = nodes.get(i);
+                round[i - start] = CompletableFuture.runAsync(() -> immutizer.validateType(node.getType(), node), executor);
+            }
+            try {
+                CompletableFuture.allOf(round).join();
+            } catch (CompletionException e) {
+                // the same exceptions as a walk on the calling thread
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+
+            for (int i = start; i < end; i++) {
+                discover(nodes.get(i));
+            }
+            start = end;
+        }
+
+        new Resolution().resolve();
+
+        Map<Class<?>, ValidationResult> results = new LinkedHashMap<>();
+        for (Class<?> root : roots) {
+            results.put(root, nodes.get(visited.get(root)).getResult());
+        }
+        return results;
+    }
+
+    /**
+     * @return Number of types walked in this pass, including the root one
+     */
+    int getTypeCount() {
+        return nodes.size();
+    }
+
+    // adds all the referenced types that do not have a known verdict to the worklist
+    private void discover(TypeNode node) {
+        fieldCount += GenericTypeResolver.getFieldPlan(node.getType()).size();
+
+        for (TypeReference reference : node.getReferences()) {
+            ValidationResult cached = immutizer.getCachedResult(reference.getType());
+            if (cached != null) {
+                reference.setResult(cached);
+            } else {
+                reference.setTarget(visit(reference.getType(), node.getDepth() + 1));
+            }
+        }
+    }
+
+    // adds a type to the worklist if it was not visited in this pass yet
+    // (the worklist is processed in order, so the first visit is always via the shortest path)
+    private int visit(Class<?> type, int depth) {
+        Integer index = visited.get(type);
+        if (index == null) {
+            index = nodes.size();
+            visited.put(type, index);
+            nodes.add(new TypeNode(type, depth));
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        return index;
+    }
+
+    private void publish(int index, ValidationResult result) {
+        TypeNode node = nodes.get(index);
+        node.setResult(result);
+
+        // the fields of the super classes are part of the verdict as well, together with the types bound to their type variables
+        Set<Class<?>> dependencies = new HashSet<>();
+        for(TypeReference reference : node.getReferences()) {
+            dependencies.add(reference.getType());
+        }
+        for (Class<?> type = node.getType().getSuperclass(); type != null && !type.equals(Object.class); type = type.getSuperclass()) {
+            dependencies.add(type);
+        }
+        immutizer.cacheResult(node.getType(), result, dependencies);
+    }
+
+    /**
+     * Resolution of all the types discovered in the pass
+     */
+    private class Resolution extends ComponentResolver<ValidationError, ValidationResult, TypeReference> {
+
+        Resolution() {
+            super(nodes.size());
+        }
+
+        @Override
+        List<TypeReference> references(int node) {
+            return nodes.get(node).getReferences();
+        }
+
+        @Override
+        ErrorCollector<ValidationError> errors(int node) {
+            return nodes.get(node).getErrors();
+        }
+
+        @Override
+        Collection<ValidationError> errorsOf(ValidationResult result) {
+            return result.getErrors();
+        }
+
+        @Override
+        ValidationResult toResult(ErrorCollector<ValidationError> errors) {
+            return ValidationResult.of(errors);
+        }
+
+        @Override
+        void addElementError(TypeReference reference, ErrorCollector<ValidationError> errors) {
+            immutizer.addError(reference.getField(), ViolationType.MUTABLE_TYPE_STORED_IN_COLLECTION, errors);
+        }
+
+        @Override
+        void publish(int node, ValidationResult result) {
+            TypeGraphWalker.this.publish(node, result);
+        }
+    }
+
+    /**
+     * Everything found out about a single type during the pass
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static class TypeNode {
+
+        private final Class<?> type;
+        // distance from the root type of the pass
+        private final int depth;
+        private final List<TypeReference> references = new ArrayList<>();
+
+        // violations found in the fields of this type, then everything it refers to while resolving
+        private final ErrorCollector<ValidationError> errors = new ErrorCollector<>();
+
+        // final verdict, including all the referenced types
+        @Setter
+        private ValidationResult result;
+
+        /**
+         * Records a field whose type has to be validated as well
+         */
+        void addReference(Class<?> type) {
+            references.add(new TypeReference(type, null));
+        }
+
+        /**
+         * Records a collection field whose stored type has to be validated as well
+         */
+        void addElementReference(Field field, Class<?> type) {
+            references.add(new TypeReference(type, field));
+        }
+    }
+
+    /**
+     * Reference from one type to another
+     */
+    @Getter
+    @Setter
+    @RequiredArgsConstructor
+    static class TypeReference implements ComponentResolver.Reference<ValidationResult> {
+
+        private final Class<?> type;
+        // collection field, only for references to the type stored in a collection
+        private final Field field;
+
+        // node in this pass or verdict known from before, one or the other
+        private int target = -1;
+        private ValidationResult result;
+
+        @Override
+        public boolean isElement() {
+            return field != null;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generic type read from a class file (a field descriptor or a Signature attribute), the class file
+ * counterpart of java.lang.reflect.Type. Class names are kept in the internal form, e.g. java/util/List
+ *
+ * @author Jacek Furmankiewicz
+ */
+abstract class TypeSignature {
+
+    /**
+     * Any wildcard, with or without bounds (they are all treated the same by the validation)
+     */
+    static final TypeSignature WILDCARD = new TypeSignature() {};
+
+    private TypeSignature() {}
+
+    /**
+     * @return The type with the type variables replaced by the types they are bound to
+     */
+    TypeSignature substitute(Map<String,TypeSignature> bindings) {
+        return this;
+    }
+
+    /**
+     * Parses a field descriptor or a field Signature attribute
+     * @param declaringClass Class the type variables in the signature belong to
+     */
+    static TypeSignature parse(String signature, String declaringClass) {
+        return new Parser(signature, declaringClass).type();
+    }
+
+    /**
+     * Parses a class Signature attribute
+     * @param declaringClass Class the signature belongs to
+     */
+    static ClassSignature parseClass(String signature, String declaringClass) {
+        return new Parser(signature, declaringClass).classSignature();
+    }
+
+    /**
+     * Class or interface, with the type arguments passed to it (none if raw or not generic)
+     */
+    @Getter
+    static final class ClassType extends TypeSignature {
+        private final String name;
+        private final List<TypeSignature> arguments;
+
+        ClassType(String name, List<TypeSignature> arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        ClassType substitute(Map<String,TypeSignature> bindings) {
+            if (arguments.isEmpty()) {
+                return this;
+            }
+            List<TypeSignature> substituted = new ArrayList<>(arguments.size());
+            for(TypeSignature argument : arguments) {
+                substituted.add(argument.substitute(bindings));
+            }
+            return new ClassType(name, substituted);
+        }
+    }
+
+    /**
+     * Reference to a type variable, e.g. T
+     */
+    @Getter
+    static final class TypeVariable extends TypeSignature {
+        private final String name;
+        // class declaring the variable, where its bounds can be found
+        private final String declaringClass;
+
+        TypeVariable(String name, String declaringClass) {
+            this.name = name;
+            this.declaringClass = declaringClass;
+        }
+
+        @Override
+        TypeSignature substitute(Map<String,TypeSignature> bindings) {
+            return bindings.getOrDefault(name, this);
+        }
+    }
+
+    @Getter
+    static final class ArrayType extends TypeSignature {
+        private final TypeSignature componentType;
+
+        ArrayType(TypeSignature componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        TypeSignature substitute(Map<String,TypeSignature> bindings) {
+            return new ArrayType(componentType.substitute(bindings));
+        }
+    }
+
+    /**
+     * Primitive type, named the same as the primitive classes (e.g. int)
+     */
+    @Getter
+    static final class PrimitiveType extends TypeSignature {
+        private final String name;
+
+        private PrimitiveType(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Type parameters of a generic class (with the erasure-relevant first bound of each) and its super class
+     */
+    @Getter
+    static final class ClassSignature {
+        private final ImmutableMap<String,TypeSignature> typeParameters;
+        private final ClassType superclass;
+
+        private ClassSignature(ImmutableMap<String,TypeSignature> typeParameters, ClassType superclass) {
+            this.typeParameters = typeParameters;
+            this.superclass = superclass;
+        }
+    }
+
+    // recursive descent over the grammar in JVMS 4.7.9.1, descriptors are a subset of it
+    private static final class Parser {
+
+        private static final ImmutableMap<Character,PrimitiveType> PRIMITIVES = ImmutableMap.<Character,PrimitiveType>builder()
+                .put('B', new PrimitiveType("byte"))
+                .put('C', new PrimitiveType("char"))
+                .put('D', new PrimitiveType("double"))
+                .put('F', new PrimitiveType("float"))
+                .put('I', new PrimitiveType("int"))
+                .put('J', new PrimitiveType("long"))
+                .put('S', new PrimitiveType("short"))
+                .put('Z', new PrimitiveType("boolean"))
+                .build();
+
+        private final String signature;
+        private final String declaringClass;
+        private int position;
+
+        Parser(String signature, String declaringClass) {
+            this.signature = signature;
+            this.declaringClass = declaringClass;
+        }
+
+        TypeSignature type() {
+            char c = signature.charAt(position++);
+            switch (c) {
+                case 'L':
+                    return classType();
+                case 'T':
+                    int end = signature.indexOf(';', position);
+                    String name = signature.substring(position, end);
+                    position = end + 1;
+                    return new TypeVariable(name, declaringClass);
+                case '[':
+                    return new ArrayType(type());
+                case '*':
+                    return WILDCARD;
+                case '+':
+                case '-':
+                    type();
+                    return WILDCARD;
+                default:
+                    PrimitiveType primitive = PRIMITIVES.get(c);
+                    if (primitive == null) {
+                        throw new IllegalArgumentException("Invalid type signature " + signature);
+                    }
+                    return primitive;
+            }
+        }
+
+        // the leading L already consumed, inner classes of generic classes are named as in the class files (Outer$Inner)
+        ClassType classType() {
+            StringBuilder name = new StringBuilder();
+            List<TypeSignature> arguments = ImmutableList.of();
+            char c;
+            while ((c = signature.charAt(position++)) != ';') {
+                if (c == '<') {
+                    arguments = new ArrayList<>();
+                    while (signature.charAt(position) != '>') {
+                        arguments.add(type());
+                    }
+                    position++;
+                } else if (c == '.') {
+                    // only the type arguments of the inner class itself matter
+                    name.append('$');
+                    arguments = ImmutableList.of();
+                } else {
+                    name.append(c);
+                }
+            }
+            return new ClassType(name.toString(), arguments);
+        }
+
+        ClassSignature classSignature() {
+            ImmutableMap.Builder<String,TypeSignature> typeParameters = ImmutableMap.builder();
+            if (signature.charAt(position) == '<') {
+                position++;
+                while (signature.charAt(position) != '>') {
+                    int colon = signature.indexOf(':', position);
+                    String name = signature.substring(position, colon);
+                    position = colon + 1;
+
+                    // the class bound can be empty, if there are only interface bounds
+                    TypeSignature bound = (signature.charAt(position) != ':') ? type() : null;
+                    while (signature.charAt(position) == ':') {
+                        position++;
+                        TypeSignature interfaceBound = type();
+                        if (bound == null) {
+                            bound = interfaceBound;
+                        }
+                    }
+                    typeParameters.put(name, bound);
+                }
+                position++;
+            }
+
+            position++;
+            return new ClassSignature(typeParameters.build(), classType());
+        }
+    }
+}
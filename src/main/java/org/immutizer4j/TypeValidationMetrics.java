@@ -0,0 +1,37 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+/**
+ * What it took to validate a root type, i.e. a single walk of its type graph
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class TypeValidationMetrics {
+
+    /**
+     * Root type of the walk (the first one, if many were walked together)
+     */
+    private Class<?> type;
+    /**
+     * Time spent walking the type graph
+     */
+    private long walkNanos;
+    /**
+     * Number of fields validated, across all the types walked
+     */
+    private int fieldCount;
+    /**
+     * Number of types walked besides the root one (the ones with a known verdict are not walked again)
+     */
+    private int nestedTypeCount;
+    /**
+     * Longest chain of references from the root type to a type that had to be walked, 0 if only the root was walked
+     */
+    private int maxDepth;
+    /**
+     * Verdict of the root type
+     */
+    private boolean valid;
+}
@@ -0,0 +1,50 @@
+package org.immutizer4j;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cache of validation results, with one in-progress future per type.
+ *
+ * When many threads ask for the same uncached type at the same time, only one of them walks it
+ * and all others wait for its result. Validation never runs inside a cache operation,
+ * so walks that populate the cache with nested types never re-enter it.
+ *
+ * @author Jacek Furmankiewicz
+ */
+interface ValidationCache {
+
+    /**
+     * Returns the cached result, validating the type if needed.
+     * If another thread is already validating the same type, waits for its result instead
+     */
+    ValidationResult get(Class<?> type, Function<Class<?>,ValidationResult> validator);
+
+    /**
+     * Returns a result only if it has already been computed, never waits
+     */
+    ValidationResult getIfPresent(Class<?> type);
+
+    /**
+     * Publishes a result computed as part of another walk.
+     * Threads waiting for the same type get released right away
+     */
+    void put(Class<?> type, ValidationResult result);
+
+    /**
+     * Records the types the cached result of a type was computed from (the types its fields and collections refer to)
+     */
+    void putDependencies(Class<?> type, Collection<Class<?>> dependencies);
+
+    /**
+     * Evicts the type and every cached type whose result depended on it, directly or via other types
+     * @return All the types whose cached results were evicted, empty if none
+     */
+    Set<Class<?>> invalidate(Class<?> type);
+
+    /**
+     * Current statistics of the cache
+     */
+    ValidationCacheStats getStats();
+}
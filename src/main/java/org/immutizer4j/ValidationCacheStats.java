@@ -0,0 +1,42 @@
+package org.immutizer4j;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the validation cache statistics
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class ValidationCacheStats {
+
+    /**
+     * Number of requests answered from the cache (or by waiting for another thread validating the same type)
+     */
+    private long hitCount;
+    /**
+     * Number of requests that had to walk the type graph
+     */
+    private long missCount;
+    /**
+     * Number of entries evicted, only ever non-zero for bounded caches
+     */
+    private long evictionCount;
+    /**
+     * Current number of entries, including nested types reached while walking other ones.
+     * For the ClassValue cache it is the number of types ever cached, since it cannot tell when a class gets unloaded
+     */
+    private long size;
+    /**
+     * Total time spent walking type graphs on cache misses
+     */
+    private long totalComputeTimeNanos;
+
+    /**
+     * Ratio of requests answered from the cache, 1.0 if there were no requests at all
+     */
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return (requests == 0) ? 1.0 : (double) hitCount / requests;
+    }
+}
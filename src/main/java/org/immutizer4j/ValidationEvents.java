@@ -0,0 +1,69 @@
+package org.immutizer4j;
+
+/**
+ * Events about the validation work, recorded by the JDK Flight Recorder when it is present
+ * (Java 11+, OpenJDK 8u262+) and ignored otherwise.
+ * Begin methods return a handle to pass to the matching end method, null if nothing gets recorded
+ *
+ * @author Jacek Furmankiewicz
+ */
+interface ValidationEvents {
+
+    /**
+     * Used when the Flight Recorder is not available
+     */
+    ValidationEvents NONE = new ValidationEvents() {
+        @Override
+        public Object beginCacheMiss(Class<?> type) {
+            return null;
+        }
+
+        @Override
+        public void endCacheMiss(Object handle) {}
+
+        @Override
+        public Object beginWalk(Class<?> type) {
+            return null;
+        }
+
+        @Override
+        public void endWalk(Object handle, ValidationResult result, int fieldCount) {}
+
+        @Override
+        public void violationThrown(ValidationResult result) {}
+    };
+
+    /**
+     * Shared by all the Immutizer instances, the Flight Recorder is one per JVM
+     */
+    ValidationEvents INSTANCE = create();
+
+    /**
+     * Validation of a type that was not cached yet
+     */
+    Object beginCacheMiss(Class<?> type);
+
+    void endCacheMiss(Object handle);
+
+    /**
+     * Walk of the type graph of a root type
+     */
+    Object beginWalk(Class<?> type);
+
+    void endWalk(Object handle, ValidationResult result, int fieldCount);
+
+    /**
+     * ImmutabilityViolationException about to be thrown
+     */
+    void violationThrown(ValidationResult result);
+
+    // the Flight Recorder classes must not even be loaded if they are not there
+    static ValidationEvents create() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return new JfrValidationEvents();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return NONE;
+        }
+    }
+}
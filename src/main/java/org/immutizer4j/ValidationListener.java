@@ -0,0 +1,23 @@
+package org.immutizer4j;
+
+/**
+ * Gets told about every walk of a type graph, e.g. for feeding a metrics pipeline.
+ * Cache hits and misses are available via Immutizer.getCacheStats()
+ *
+ * @author Jacek Furmankiewicz
+ */
+@FunctionalInterface
+public interface ValidationListener {
+
+    /**
+     * Ignores all the walks (default), nothing gets measured
+     */
+    ValidationListener NONE = metrics -> {};
+
+    /**
+     * Called after a root type was walked, on the thread that walked it.
+     * Not called for types with a known verdict (cached, safe, verified at compile time or precomputed during the build).
+     * The types passed to getValidationResults() are walked together, that walk is reported once under the first of them
+     */
+    void typeValidated(TypeValidationMetrics metrics);
+}
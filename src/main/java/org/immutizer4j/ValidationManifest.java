@@ -0,0 +1,535 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.UnsignedBytes;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Compact binary manifest of verdicts computed during the build, packaged in the jar as
+ * META-INF/immutizer4j/verdicts.bin and loaded by Immutizer at startup, so that none of the listed
+ * types need to be walked via reflection.
+ *
+ * Every verdict is stored with the class file hashes of all the types it depends on (its super classes,
+ * field types and types stored in collections, transitively). If any of them differs from the class file
+ * actually loaded, the verdict is stale and the type simply gets walked as usual.
+ *
+ * Verdicts are only used by an Immutizer with exactly the same settings (strict mode and safe types).
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class ValidationManifest implements VerdictStore {
+
+    /**
+     * Location of the manifest in the jar
+     */
+    public static final String LOCATION = "META-INF/immutizer4j/verdicts.bin";
+
+    private static final int MAGIC = 0x494D5A56;
+    private static final short VERSION = 3;
+
+    // sizes of the fixed size entries of the type table (name offset, hash) and of the verdict index (type, verdict offset)
+    private static final int TYPE_ENTRY = 12;
+    private static final int INDEX_ENTRY = 8;
+
+    private final boolean strict;
+    private final ImmutableSet<String> safeTypes;
+    private final ImmutableList<ViolationType> violationTypes;
+
+    // nothing else gets decoded upfront, only the positions of the sections are known
+    private final ByteBuffer buffer;
+    private final int typeCount;
+    private final int verdictCount;
+    private final int typesStart;
+    private final int indexStart;
+    private final int namesStart;
+    private final int verdictsStart;
+
+    // hash of every class file checked so far, per loaded class
+    private final ClassValue<OptionalLong> loadedHashes = new ClassValue<OptionalLong>() {
+        @Override
+        protected OptionalLong computeValue(Class<?> type) {
+            return ClassFiles.hash(type);
+        }
+    };
+
+    private ValidationManifest(boolean strict, ImmutableSet<String> safeTypes, ImmutableList<ViolationType> violationTypes,
+                               ByteBuffer buffer, int typeCount, int verdictCount, int namesLength) {
+        this.strict = strict;
+        this.safeTypes = safeTypes;
+        this.violationTypes = violationTypes;
+        this.buffer = buffer;
+        this.typeCount = typeCount;
+        this.verdictCount = verdictCount;
+        this.typesStart = buffer.position();
+        this.indexStart = typesStart + typeCount * TYPE_ENTRY;
+        this.namesStart = indexStart + verdictCount * INDEX_ENTRY;
+        this.verdictsStart = namesStart + namesLength;
+    }
+
+    /**
+     * Validates all the types (in parallel) and writes their verdicts into the manifest
+     * @param immutizer Immutizer with the same settings as the one that will use the manifest at runtime
+     * @param classes Types to validate
+     * @param out Stream to write to, not closed
+     */
+    public static void write(@NonNull Immutizer immutizer, @NonNull Collection<? extends Class<?>> classes,
+                             @NonNull OutputStream out) throws IOException {
+        write(immutizer, classes, null, 0, out);
+    }
+
+    /**
+     * Same as write(), but also carries over the verdicts of all the other types from a previous manifest,
+     * unless any of the class files they depend on differs from the ones the new verdicts were checked against
+     * @param previous Manifest written with the same settings, null if there is none
+     * @param generation Tells apart newer and older manifests of the same application
+     */
+    static void write(Immutizer immutizer, Collection<? extends Class<?>> classes, ValidationManifest previous,
+                      long generation, OutputStream out) throws IOException {
+        ImmutableMap<Class<?>,ValidationResult> results = immutizer.getValidationResults(classes);
+
+        Tables tables = new Tables();
+        for(Class<?> clazz : results.keySet()) {
+            tables.add(immutizer, clazz, results.get(clazz));
+        }
+        if (previous != null) {
+            for(int i = 0; i < previous.verdictCount; i++) {
+                previous.copy(i, tables);
+            }
+        }
+        tables.write(immutizer, generation, out);
+    }
+
+    /**
+     * Reads a manifest written by write()
+     * @throws IOException If the manifest is corrupted or was written by an incompatible version
+     */
+    public static ValidationManifest read(@NonNull InputStream in) throws IOException {
+        return read(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+    }
+
+    /**
+     * Reads a manifest straight from the buffer (e.g. a memory mapped file). Only the header is decoded upfront,
+     * types are looked up by a binary search over the sorted verdict index and their verdicts decoded from the buffer
+     * when asked for, so the contents of the buffer must never change
+     * @throws IOException If the manifest is corrupted or was written by an incompatible version
+     */
+    static ValidationManifest read(@NonNull ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.asReadOnlyBuffer();
+        try {
+            if (data.getInt() != MAGIC || data.getShort() != VERSION) {
+                throw new IOException("Not a validation manifest or unsupported version");
+            }
+            data.getLong();
+            boolean strict = data.get() != 0;
+
+            ImmutableSet.Builder<String> safeTypes = ImmutableSet.builder();
+            for(int i = data.getInt(); i > 0; i--) {
+                safeTypes.add(readString(data));
+            }
+
+            ViolationType[] violationTypes = new ViolationType[data.get() & 0xFF];
+            for(int i = 0; i < violationTypes.length; i++) {
+                violationTypes[i] = ViolationType.valueOf(readString(data));
+            }
+
+            int typeCount = checkSize(data.getInt(), data.remaining());
+            int verdictCount = checkSize(data.getInt(), data.remaining());
+            int namesLength = checkSize(data.getInt(), data.remaining());
+            int verdictsLength = checkSize(data.getInt(), data.remaining());
+            // e.g. a truncated file, the sections themselves are only checked when a verdict gets decoded
+            if ((long) typeCount * TYPE_ENTRY + (long) verdictCount * INDEX_ENTRY + namesLength + verdictsLength != data.remaining()) {
+                throw new IllegalArgumentException("Invalid length " + data.remaining());
+            }
+            return new ValidationManifest(strict, safeTypes.build(), ImmutableList.copyOf(violationTypes),
+                    data, typeCount, verdictCount, namesLength);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted validation manifest", e);
+        }
+    }
+
+    /**
+     * @return Number of bytes generation() needs
+     */
+    static int headerSize() {
+        return 14;
+    }
+
+    /**
+     * @return Generation the manifest was written with, -1 if the bytes do not start like a manifest of this version
+     */
+    static long generation(ByteBuffer header) {
+        if (header.remaining() < headerSize() || header.getInt(header.position()) != MAGIC
+                || header.getShort(header.position() + 4) != VERSION) {
+            return -1;
+        }
+        return header.getLong(header.position() + 6);
+    }
+
+    /**
+     * @return If the verdicts were computed with exactly the same settings as the Immutizer has
+     */
+    boolean matches(Immutizer immutizer) {
+        return strict == immutizer.isStrict() &&
+                safeTypes.equals(immutizer.getSafeTypes().stream().map(Class::getName).collect(Collectors.toSet()));
+    }
+
+    /**
+     * @return Precomputed verdict, null if the type is not in the manifest or any of the class files
+     * the verdict depends on has changed since
+     */
+    @Override
+    public ValidationResult get(@NonNull Class<?> type) {
+        try {
+            int verdict = find(type.getName().getBytes(StandardCharsets.UTF_8));
+            return (verdict >= 0) ? decode(verdict, type.getClassLoader()) : null;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // corrupted verdict, the type just gets walked
+            return null;
+        }
+    }
+
+    /**
+     * @return Number of verdicts in the manifest
+     */
+    public int size() {
+        return verdictCount;
+    }
+
+    // position of the verdict in the verdict index, -1 if the type is not there
+    private int find(byte[] name) {
+        int low = 0;
+        int high = verdictCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(buffer.getInt(indexStart + middle * INDEX_ENTRY), name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // compares the UTF-8 bytes of the type name in the table, the same order the index was sorted in
+    private int compareName(int type, byte[] name) {
+        int position = namesStart + buffer.getInt(typesStart + checkIndex(type, typeCount) * TYPE_ENTRY);
+        int length = buffer.getShort(position) & 0xFFFF;
+        position += 2;
+        for (int i = 0; i < Math.min(length, name.length); i++) {
+            int comparison = UnsignedBytes.compare(buffer.get(position + i), name[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    // the verdict at the position in the index, checked against the class files of all the types it depends on
+    private ValidationResult decode(int verdict, ClassLoader loader) {
+        ByteBuffer data = buffer.duplicate();
+        data.position(verdictsStart + buffer.getInt(indexStart + verdict * INDEX_ENTRY + 4));
+
+        // every dependency is resolved the same way the type itself resolves it
+        int[] dependencies = new int[checkSize(data.getInt(), typeCount)];
+        Class<?>[] resolved = new Class<?>[dependencies.length];
+        try {
+            for(int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = checkIndex(data.getInt(), typeCount);
+                Class<?> clazz = Class.forName(typeName(dependencies[i]), false, loader);
+                OptionalLong hash = loadedHashes.get(clazz);
+                if (!hash.isPresent() || hash.getAsLong() != typeHash(dependencies[i])) {
+                    return null;
+                }
+                resolved[i] = clazz;
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+
+        ErrorCollector<ValidationError> errors = new ErrorCollector<>();
+        for(int i = data.getInt(); i > 0; i--) {
+            int declaringType = checkIndex(data.getInt(), typeCount);
+            String fieldName = readString(data);
+            ViolationType violationType = violationTypes.get(data.get() & 0xFF);
+            // errors can only come from the types the verdict depends on
+            int dependency = Ints.indexOf(dependencies, declaringType);
+            if (dependency < 0) {
+                return null;
+            }
+            errors.add(new ValidationError(resolved[dependency], fieldName, violationType));
+        }
+        return ValidationResult.of(errors);
+    }
+
+    // copies the verdict at the position in the index as it is, unless the type already has a new one
+    private void copy(int verdict, Tables tables) throws IOException {
+        try {
+            int type = checkIndex(buffer.getInt(indexStart + verdict * INDEX_ENTRY), typeCount);
+            ByteBuffer data = buffer.duplicate();
+            data.position(verdictsStart + buffer.getInt(indexStart + verdict * INDEX_ENTRY + 4));
+
+            int[] dependencies = new int[checkSize(data.getInt(), typeCount)];
+            for(int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = checkIndex(data.getInt(), typeCount);
+            }
+            int[] errorTypes = new int[checkSize(data.getInt(), data.remaining())];
+            String[] fieldNames = new String[errorTypes.length];
+            ViolationType[] errorViolationTypes = new ViolationType[errorTypes.length];
+            for(int i = 0; i < errorTypes.length; i++) {
+                errorTypes[i] = checkIndex(data.getInt(), typeCount);
+                fieldNames[i] = readString(data);
+                errorViolationTypes[i] = violationTypes.get(data.get() & 0xFF);
+            }
+
+            tables.copy(this, type, dependencies, errorTypes, fieldNames, errorViolationTypes);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // corrupted verdict, not worth keeping
+        }
+    }
+
+    private String typeName(int type) {
+        ByteBuffer data = buffer.duplicate();
+        data.position(namesStart + buffer.getInt(typesStart + type * TYPE_ENTRY));
+        return readString(data);
+    }
+
+    private long typeHash(int type) {
+        return buffer.getLong(typesStart + type * TYPE_ENTRY + 4);
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        writeString(data, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeString(DataOutputStream data, byte[] bytes) throws IOException {
+        data.writeShort(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xFFFF];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkSize(int size, int maximum) {
+        if (size < 0 || size > maximum) {
+            throw new IllegalArgumentException("Invalid size " + size);
+        }
+        return size;
+    }
+
+    private static int checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Invalid type index " + index);
+        }
+        return index;
+    }
+
+    // all the types whose class files can change the verdict of the type, including itself
+    private static Set<Class<?>> dependencies(Immutizer immutizer, Class<?> root) {
+        Set<Class<?>> closure = new LinkedHashSet<>();
+        Deque<Class<?>> worklist = new ArrayDeque<>();
+        worklist.add(root);
+
+        while (!worklist.isEmpty()) {
+            Class<?> type = worklist.poll();
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (type.isPrimitive() || immutizer.isSafeType(type) || !closure.add(type)) {
+                continue;
+            }
+
+            if (type.getSuperclass() != null && !type.getSuperclass().equals(Object.class)) {
+                worklist.add(type.getSuperclass());
+            }
+            // resolved from the type itself, so that the types bound to the type variables of the super classes count too
+            FieldPlan plan = GenericTypeResolver.getFieldPlan(type);
+            for (int i = 0; i < plan.size(); i++) {
+                worklist.add(plan.target(i));
+                Collections.addAll(worklist, plan.nestedCollectionTypes(i));
+                Collections.addAll(worklist, plan.elementTypes(i));
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Type table, names and verdicts of a manifest being written
+     */
+    private static class Tables {
+
+        // position of every type in the type table
+        private final Map<String,Integer> index = new LinkedHashMap<>();
+        // each class checked so far, -1 if its verdicts cannot be stored
+        private final Map<Class<?>,Integer> classes = new HashMap<>();
+        private final List<Long> hashes = new ArrayList<>();
+        private final ByteArrayOutputStream names = new ByteArrayOutputStream();
+        private final DataOutputStream nameData = new DataOutputStream(names);
+        private final List<Integer> nameOffsets = new ArrayList<>();
+
+        // where each verdict starts, by type
+        private final Map<String,Integer> verdictOffsets = new LinkedHashMap<>();
+        private final ByteArrayOutputStream verdicts = new ByteArrayOutputStream();
+        private final DataOutputStream verdictData = new DataOutputStream(verdicts);
+
+        void add(Immutizer immutizer, Class<?> clazz, ValidationResult result) throws IOException {
+            // every type the verdict depends on, with its position in the type table
+            Set<Class<?>> closure = dependencies(immutizer, clazz);
+            int[] positions = new int[closure.size()];
+            int i = 0;
+            for(Class<?> dependency : closure) {
+                Integer position = classes.get(dependency);
+                if (position == null) {
+                    OptionalLong hash = ClassFiles.hash(dependency);
+                    position = hash.isPresent() ? position(dependency.getName(), hash.getAsLong()) : -1;
+                    classes.put(dependency, position);
+                }
+                if (position < 0) {
+                    // verdicts that cannot ever be checked for staleness are not worth storing
+                    return;
+                }
+                positions[i++] = position;
+            }
+            if (!closure.contains(clazz) || !result.getErrors().stream().allMatch(e -> closure.contains(e.getType()))) {
+                return;
+            }
+
+            verdictOffsets.put(clazz.getName(), verdictData.size());
+            writeDependencies(positions);
+            verdictData.writeInt(result.getErrors().size());
+            for(ValidationError error : result.getErrors()) {
+                verdictData.writeInt(index.get(error.getType().getName()));
+                writeString(verdictData, error.getFieldName());
+                verdictData.writeByte(error.getViolationType().ordinal());
+            }
+        }
+
+        // verdict of the type from the previous manifest, its type indexes point into the previous type table
+        void copy(ValidationManifest previous, int type, int[] dependencies, int[] errorTypes, String[] fieldNames,
+                  ViolationType[] violationTypes) throws IOException {
+            String name = previous.typeName(type);
+            if (verdictOffsets.containsKey(name)) {
+                return;
+            }
+
+            // the same type with a different class file means the previous verdict is stale
+            int[] positions = new int[dependencies.length];
+            for(int i = 0; i < dependencies.length; i++) {
+                positions[i] = position(previous.typeName(dependencies[i]), previous.typeHash(dependencies[i]));
+                if (positions[i] < 0) {
+                    return;
+                }
+            }
+            if (!Ints.contains(dependencies, type) || !Ints.asList(dependencies).containsAll(Ints.asList(errorTypes))) {
+                return;
+            }
+
+            verdictOffsets.put(name, verdictData.size());
+            writeDependencies(positions);
+            verdictData.writeInt(errorTypes.length);
+            for(int i = 0; i < errorTypes.length; i++) {
+                verdictData.writeInt(positions[Ints.indexOf(dependencies, errorTypes[i])]);
+                writeString(verdictData, fieldNames[i]);
+                verdictData.writeByte(violationTypes[i].ordinal());
+            }
+        }
+
+        void write(Immutizer immutizer, long generation, OutputStream out) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeLong(generation);
+            data.writeBoolean(immutizer.isStrict());
+
+            Set<String> safeTypes = immutizer.getSafeTypes().stream().map(Class::getName).collect(Collectors.toCollection(TreeSet::new));
+            data.writeInt(safeTypes.size());
+            for(String safeType : safeTypes) {
+                writeString(data, safeType);
+            }
+
+            // violation types are stored by position, the names make it independent of the enum order
+            data.writeByte(ViolationType.values().length);
+            for(ViolationType violationType : ViolationType.values()) {
+                writeString(data, violationType.name());
+            }
+
+            data.writeInt(hashes.size());
+            data.writeInt(verdictOffsets.size());
+            data.writeInt(names.size());
+            data.writeInt(verdicts.size());
+
+            for(int i = 0; i < hashes.size(); i++) {
+                data.writeInt(nameOffsets.get(i));
+                data.writeLong(hashes.get(i));
+            }
+
+            // sorted by the bytes of the type names, for the binary search
+            Map<byte[],String> sorted = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+            for(String type : verdictOffsets.keySet()) {
+                sorted.put(type.getBytes(StandardCharsets.UTF_8), type);
+            }
+            for(String type : sorted.values()) {
+                data.writeInt(index.get(type));
+                data.writeInt(verdictOffsets.get(type));
+            }
+
+            names.writeTo(data);
+            verdicts.writeTo(data);
+            data.flush();
+        }
+
+        // position of the type in the table, -1 if it is already there with a different class file
+        private int position(String type, long hash) throws IOException {
+            Integer existing = index.get(type);
+            if (existing != null) {
+                return (hashes.get(existing) == hash) ? existing : -1;
+            }
+            int position = hashes.size();
+            index.put(type, position);
+            hashes.add(hash);
+            nameOffsets.add(nameData.size());
+            writeString(nameData, type);
+            return position;
+        }
+
+        private void writeDependencies(int[] positions) throws IOException {
+            verdictData.writeInt(positions.length);
+            for(int position : positions) {
+                verdictData.writeInt(position);
+            }
+        }
+    }
+}
@@ -17,8 +17,20 @@ public class ValidationResult {
 
     private static final String OK = "OK";
 
+    /**
+     * Shared result for all the types without any violations
+     */
+    static final ValidationResult VALID = new ValidationResult(ImmutableSet.<ValidationError>of());
+
     private ImmutableSet<ValidationError> errors;
 
+    /**
+     * Freezes all the errors collected during a walk into an immutable result
+     */
+    static ValidationResult of(ErrorCollector<ValidationError> errors) {
+        return errors.isEmpty() ? VALID : new ValidationResult(errors.toSet());
+    }
+
     /**
      * Returns if the validation passed or not
      * @return
@@ -0,0 +1,45 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Source of verdicts computed ahead of time (e.g. during the build), consulted before walking a type
+ *
+ * @author Jacek Furmankiewicz
+ */
+interface VerdictStore {
+
+    /**
+     * Used when there is nothing precomputed
+     */
+    VerdictStore NONE = type -> null;
+
+    /**
+     * @return Precomputed verdict, null if the type is unknown or its verdict is no longer valid for the loaded code
+     */
+    ValidationResult get(Class<?> type);
+
+    /**
+     * Asks all the stores in order, the first verdict found wins
+     */
+    static VerdictStore firstOf(List<? extends VerdictStore> stores) {
+        if (stores.isEmpty()) {
+            return NONE;
+        } else if (stores.size() == 1) {
+            return stores.get(0);
+        }
+
+        ImmutableList<VerdictStore> copy = ImmutableList.copyOf(stores);
+        return type -> {
+            for(VerdictStore store : copy) {
+                ValidationResult result = store.get(type);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package org.immutizer4j;
+
+import java.util.Set;
+
+/**
+ * Registry of types already verified as immutable at compile time.
+ * Implementations are generated by the immutizer4j-processor annotation processor
+ * and discovered at runtime via ServiceLoader.
+ * Types are listed by name only, the classes found at runtime are assumed to be the ones verified while compiling
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface VerifiedTypeRegistry {
+
+    /**
+     * @return Binary names (as in Class.getName()) of all the verified types
+     */
+    Set<String> getVerifiedTypes();
+
+    /**
+     * @return If the types were verified in strict mode (i.e. no arrays allowed)
+     */
+    boolean isStrict();
+
+    /**
+     * @return Names of the custom safe types the verification was allowed to rely on
+     */
+    Set<String> getSafeTypes();
+}
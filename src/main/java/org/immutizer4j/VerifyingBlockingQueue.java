@@ -0,0 +1,57 @@
+package org.immutizer4j;
+
+import com.google.common.util.concurrent.ForwardingBlockingQueue;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue that lets only immutable messages in, all the ways of adding to it get verified
+ * before they reach the delegate
+ *
+ * @author Jacek Furmankiewicz
+ */
+class VerifyingBlockingQueue<E> extends ForwardingBlockingQueue<E> {
+
+    private final BlockingQueue<E> delegate;
+    private final LastClassVerifier messages;
+
+    VerifyingBlockingQueue(BlockingQueue<E> delegate, Immutizer immutizer) {
+        this.delegate = delegate;
+        this.messages = new LastClassVerifier(immutizer);
+    }
+
+    @Override
+    protected BlockingQueue<E> delegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean add(E element) {
+        return delegate.add(messages.verify(element));
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        for(E element : collection) {
+            messages.verify(element);
+        }
+        return delegate.addAll(collection);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        return delegate.offer(messages.verify(element));
+    }
+
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.offer(messages.verify(element), timeout, unit);
+    }
+
+    @Override
+    public void put(E element) throws InterruptedException {
+        delegate.put(messages.verify(element));
+    }
+}
@@ -0,0 +1,90 @@
+package org.immutizer4j;
+
+import com.google.common.collect.ForwardingConcurrentMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Map that lets only immutable keys and values in. All the writes via the map itself get verified
+ * (values computed by compute() and merge() functions included) before they reach the delegate,
+ * so the delegate keeps its own atomicity guarantees
+ *
+ * @author Jacek Furmankiewicz
+ */
+class VerifyingConcurrentMap<K,V> extends ForwardingConcurrentMap<K,V> {
+
+    private final ConcurrentMap<K,V> delegate;
+    private final LastClassVerifier keys;
+    private final LastClassVerifier values;
+
+    VerifyingConcurrentMap(ConcurrentMap<K,V> delegate, Immutizer immutizer) {
+        this.delegate = delegate;
+        this.keys = new LastClassVerifier(immutizer);
+        this.values = new LastClassVerifier(immutizer);
+    }
+
+    @Override
+    protected ConcurrentMap<K,V> delegate() {
+        return delegate;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return delegate.put(keys.verify(key), values.verify(value));
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        // the caller's map may change after it was verified, only the verified copy reaches the delegate
+        Map<K,V> snapshot = new LinkedHashMap<>(map);
+        for(Map.Entry<K,V> entry : snapshot.entrySet()) {
+            keys.verify(entry.getKey());
+            values.verify(entry.getValue());
+        }
+        delegate.putAll(snapshot);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return delegate.putIfAbsent(keys.verify(key), values.verify(value));
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return delegate.replace(key, oldValue, values.verify(newValue));
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return delegate.replace(key, values.verify(value));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return delegate.computeIfAbsent(keys.verify(key), k -> values.verify(mappingFunction.apply(k)));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return delegate.computeIfPresent(key, (k, v) -> values.verify(remappingFunction.apply(k, v)));
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return delegate.compute(keys.verify(key), (k, v) -> values.verify(remappingFunction.apply(k, v)));
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return delegate.merge(keys.verify(key), values.verify(value), (v1, v2) -> values.verify(remappingFunction.apply(v1, v2)));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        delegate.replaceAll((k, v) -> values.verify(function.apply(k, v)));
+    }
+}
@@ -0,0 +1,29 @@
+package org.immutizer4j;
+
+/**
+ * Gets told about every violation found while walking, e.g. for logging them.
+ * Called with the raw parts of the violation, so a reporter that does not use them
+ * does not pay for creating or formatting anything
+ *
+ * @author Jacek Furmankiewicz
+ */
+@FunctionalInterface
+public interface ViolationReporter {
+
+    /**
+     * Ignores all the violations, for callers that only look at the validation results
+     */
+    ViolationReporter NONE = (type, fieldName, violationType) -> {};
+
+    /**
+     * Logs every violation as an error via SLF4J (default)
+     */
+    ViolationReporter SLF4J = new Slf4jViolationReporter();
+
+    /**
+     * @param type Type declaring the field
+     * @param fieldName Name of the field
+     * @param violationType Type of the violation
+     */
+    void report(Class<?> type, String fieldName, ViolationType violationType);
+}
@@ -35,6 +35,11 @@ public enum ViolationType {
      * Sometimes we just can't get the type. In this case we flag it as an error since it is not possible
      * for us to safely determine immutability (all we have is java.lang.Object)
      */
-    UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE
+    UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE,
+    /**
+     * Only reported by the ClassFileValidator: the class file of the type (or of one of its super classes)
+     * could not be found, so there is no telling what its fields are
+     */
+    UNRESOLVABLE_TYPE
 
 }
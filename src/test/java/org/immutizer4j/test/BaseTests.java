@@ -60,6 +60,21 @@ public class BaseTests {
         assertTrue(result.toString(),result.toString().contains("org.immutizer4j.test.sample.NonFinalFieldsPojo.testDbl : NON_FINAL_FIELD"));
     }
 
+    /**
+     * Nested types get cached on their own, a parent validated after them should still report all of their errors
+     */
+    @Test
+    public void testCachedNestedTypeErrorsMergedIntoParent() {
+        Immutizer immutizer = new Immutizer();
+
+        ValidationResult nested = immutizer.getValidationResult(NonFinalFieldsPojo.class);
+        assertEquals(5, nested.getErrors().size());
+
+        ValidationResult result = immutizer.getValidationResult(FinalParentWithNonFinalFieldsPojo.class);
+        assertEquals(false, result.isValid());
+        assertEquals(nested.getErrors(), result.getErrors());
+    }
+
     @Test
     public void testFinalMutableCollection() {
         ValidationResult result = defaultImmutizer.getValidationResult(MutableCollectionPojo.class);
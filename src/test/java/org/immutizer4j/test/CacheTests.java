@@ -0,0 +1,162 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import org.immutizer4j.CacheMode;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationCacheStats;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.test.sample.*;
+import org.immutizer4j.test.sample.cycles.CyclicA;
+import org.immutizer4j.test.sample.cycles.CyclicB;
+import org.immutizer4j.test.sample.generics.GenericsBase;
+import org.immutizer4j.test.sample.generics.GoodBoundGenericsContainer;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the different ways of caching validation results
+ * @author Jacek Furmankiewicz
+ */
+public class CacheTests {
+
+    private Immutizer defaultImmutizer = new Immutizer();
+    private Immutizer classValueImmutizer = Immutizer.builder().cacheMode(CacheMode.CLASS_VALUE).build();
+
+    @Test
+    public void testClassValueCacheMatchesDefault() {
+        for (Class<?> clazz : new Class<?>[]{ArrayPojo.class, ChildPojoReferencePojo.class, ImmutablePojo.class,
+                ImmutableCollectionWithMutableElementPojo.class, RegexPatternReferencePojo.class, CyclicA.class}) {
+            ValidationResult result = classValueImmutizer.getValidationResult(clazz);
+            assertEquals(defaultImmutizer.getValidationResult(clazz), result);
+            // second time around it comes from the cache
+            assertEquals(result, classValueImmutizer.getValidationResult(clazz));
+        }
+    }
+
+    @Test
+    public void testBoundedCacheEvictsAndRecordsStats() {
+        Immutizer bounded = Immutizer.builder().maximumCacheSize(2).build();
+
+        assertEquals(true, bounded.getValidationResult(ImmutablePojo.class).isValid());
+        assertEquals(true, bounded.getValidationResult(ImmutablePojo.class).isValid());
+        assertEquals(true, bounded.getValidationResult(ImmutablePojo2.class).isValid());
+        assertEquals(true, bounded.getValidationResult(ImmutablePojo3.class).isValid());
+
+        ValidationCacheStats stats = bounded.getCacheStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(2, stats.getSize());
+        assertTrue(stats.getTotalComputeTimeNanos() > 0);
+        assertEquals(0.25, stats.hitRate(), 0.001);
+
+        // evicted types simply get validated again
+        assertEquals(5, bounded.getValidationResult(NonFinalFieldsPojo.class).getErrors().size());
+        assertEquals(true, bounded.getValidationResult(ImmutablePojo.class).isValid());
+    }
+
+    @Test
+    public void testStatsIncludeNestedTypes() {
+        Immutizer immutizer = new Immutizer();
+        immutizer.getValidationResult(ChildPojoReferencePojo.class);
+        immutizer.getValidationResult(ChildPojo.class);
+
+        ValidationCacheStats stats = immutizer.getCacheStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testInvalidateEvictsDependents() {
+        for(Immutizer immutizer : new Immutizer[]{new Immutizer(), Immutizer.builder().cacheMode(CacheMode.CLASS_VALUE).build(),
+                Immutizer.builder().maximumCacheSize(100).build()}) {
+            ValidationResult expected = immutizer.getValidationResult(ChildPojoReferencePojo.class);
+            immutizer.getValidationResult(CyclicA.class);
+            immutizer.getValidationResult(ImmutablePojo.class);
+
+            assertEquals(ImmutableSet.of(ChildPojo.class, ChildPojoReferencePojo.class), immutizer.invalidate(ChildPojo.class));
+            // every member of a cycle reaches every other one
+            assertEquals(ImmutableSet.of(CyclicB.class, CyclicA.class), immutizer.invalidate(CyclicB.class));
+            // nothing was cached for it
+            assertEquals(ImmutableSet.of(), immutizer.invalidate(ImmutablePojo2.class));
+
+            // only the evicted types get walked again
+            long misses = immutizer.getCacheStats().getMissCount();
+            immutizer.getValidationResult(ImmutablePojo.class);
+            assertEquals(misses, immutizer.getCacheStats().getMissCount());
+            assertEquals(expected, immutizer.getValidationResult(ChildPojoReferencePojo.class));
+            assertEquals(misses + 1, immutizer.getCacheStats().getMissCount());
+
+            // and their dependencies get recorded again
+            assertEquals(ImmutableSet.of(ChildPojo.class, ChildPojoReferencePojo.class), immutizer.invalidate(ChildPojo.class));
+        }
+    }
+
+    @Test
+    public void testInvalidateParentClass() {
+        Immutizer immutizer = new Immutizer();
+        ValidationResult child = immutizer.getValidationResult(ChildPojo.class);
+        ValidationResult reference = immutizer.getValidationResult(ChildPojoReferencePojo.class);
+        assertTrue(child.toString(), child.toString().contains("org.immutizer4j.test.sample.ParentPojo.paretMutableInt : NON_FINAL_FIELD"));
+
+        // the parent was never validated on its own, but its fields are part of the verdicts of the child
+        assertEquals(ImmutableSet.of(ChildPojo.class, ChildPojoReferencePojo.class), immutizer.invalidate(ParentPojo.class));
+        assertEquals(child, immutizer.getValidationResult(ChildPojo.class));
+        assertEquals(reference, immutizer.getValidationResult(ChildPojoReferencePojo.class));
+
+        // types bound to the type variables of a super class, as well as the super class itself
+        immutizer.getValidationResult(GoodBoundGenericsContainer.class);
+        assertEquals(ImmutableSet.of(GoodBoundGenericsContainer.class), immutizer.invalidate(GenericsBase.class));
+        immutizer.getValidationResult(GoodBoundGenericsContainer.class);
+        assertTrue(immutizer.invalidate(ImmutablePojo.class).contains(GoodBoundGenericsContainer.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClassValueCacheCannotBeBounded() {
+        Immutizer.builder().cacheMode(CacheMode.CLASS_VALUE).maximumCacheSize(100).build();
+    }
+
+    /**
+     * Validated classes should not keep their class loader from being collected
+     */
+    @Test
+    public void testClassValueCacheReleasesClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = validateInThrowawayClassLoader(classValueImmutizer);
+
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull("Class loader was not released", loader.get());
+    }
+
+    private WeakReference<ClassLoader> validateInThrowawayClassLoader(Immutizer immutizer) throws Exception {
+        ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.equals(NonFinalFieldsPojo.class.getName())) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] bytes = ByteStreams.toByteArray(in);
+                        return defineClass(name, bytes, 0, bytes.length);
+                    } catch (java.io.IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return super.loadClass(name, resolve);
+            }
+        };
+
+        Class<?> clazz = loader.loadClass(NonFinalFieldsPojo.class.getName());
+        assertEquals(5, immutizer.getValidationResult(clazz).getErrors().size());
+        return new WeakReference<>(loader);
+    }
+}
@@ -0,0 +1,133 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.immutizer4j.ClassFileValidationResult;
+import org.immutizer4j.ClassFileValidator;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationError;
+import org.immutizer4j.ViolationReporter;
+import org.immutizer4j.test.sample.ChildPojoReferencePojo;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+import org.immutizer4j.test.sample.classfile.InitializerPojo;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for validating types straight from their class files
+ * @author Jacek Furmankiewicz
+ */
+public class ClassFileValidatorTests {
+
+    private static final String SAMPLES = "org.immutizer4j.test.sample.";
+
+    @Test
+    public void testSameVerdictsAsReflection() throws Exception {
+        for(boolean strict : new boolean[]{true, false}) {
+            Immutizer immutizer = Immutizer.builder().strict(strict).violationReporter(ViolationReporter.NONE)
+                    .useVerifiedTypeRegistries(false).useValidationManifests(false).build();
+
+            try (ClassFileValidator validator = ClassFileValidator.open(immutizer, testClasses())) {
+                ImmutableMap<String,ClassFileValidationResult> results = validator.getValidationResults();
+                assertTrue(results.containsKey(ImmutablePojo.class.getName()));
+
+                for(Map.Entry<String,ClassFileValidationResult> entry : results.entrySet()) {
+                    if (entry.getKey().startsWith(SAMPLES)) {
+                        // the class gets loaded only now, for comparing with the reflection based validation
+                        Class<?> type = Class.forName(entry.getKey(), false, getClass().getClassLoader());
+                        assertEquals(entry.getKey(), errors(immutizer.getValidationResult(type).getErrors()),
+                                entry.getValue().getErrors().stream().map(Object::toString).collect(Collectors.toSet()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClassesNeverInitialized() throws IOException {
+        try (ClassFileValidator validator = ClassFileValidator.open(new Immutizer(), testClasses())) {
+            ClassFileValidationResult result = validator.getValidationResult(InitializerPojo.class.getName());
+            assertEquals("org.immutizer4j.test.sample.classfile.InitializerPojo.values : MUTABLE_TYPE_STORED_IN_COLLECTION",
+                    result.toString());
+        }
+    }
+
+    @Test
+    public void testJar() throws IOException {
+        Path jar = Files.createTempFile("immutizer4j", ".jar");
+        Files.delete(jar);
+        try {
+            try (FileSystem zip = FileSystems.newFileSystem(URI.create("jar:" + jar.toUri()), Collections.singletonMap("create", "true"))) {
+                for(Class<?> type : ImmutableList.of(ImmutablePojo.class, NonFinalFieldsPojo.class)) {
+                    Path entry = zip.getPath(type.getName().replace('.', '/') + ".class");
+                    Files.createDirectories(entry.getParent());
+                    Files.copy(testClasses().resolve(type.getName().replace('.', '/') + ".class"), entry);
+                }
+            }
+
+            try (ClassFileValidator validator = ClassFileValidator.open(new Immutizer(), jar)) {
+                assertEquals(ImmutableSet.of(ImmutablePojo.class.getName(), NonFinalFieldsPojo.class.getName()), validator.getClassNames());
+
+                ImmutableMap<String,ClassFileValidationResult> results = validator.getValidationResults();
+                assertEquals(true, results.get(ImmutablePojo.class.getName()).isValid());
+                assertEquals(5, results.get(NonFinalFieldsPojo.class.getName()).getErrors().size());
+            }
+
+            // types outside of the jar are read via the class loader, the JDK ones are always there
+            try (ClassFileValidator validator = ClassFileValidator.open(new Immutizer(), ImmutableList.of(jar),
+                    new URLClassLoader(new URL[0], null))) {
+                assertEquals(true, validator.getValidationResult(ImmutablePojo.class.getName()).isValid());
+                assertEquals(false, validator.getValidationResult("java.util.Date").isValid());
+            }
+        } finally {
+            Files.deleteIfExists(jar);
+        }
+    }
+
+    @Test
+    public void testMissingClassFile() throws IOException {
+        try (ClassFileValidator validator = ClassFileValidator.open(new Immutizer(), ImmutableList.of(testClasses()),
+                new URLClassLoader(new URL[0], null))) {
+            // guava is nowhere to be found, the rest of the batch still gets validated
+            ImmutableMap<String,ClassFileValidationResult> results = validator.getValidationResults(
+                    ImmutableList.of(InitializerPojo.class.getName(), "org.immutizer4j.test.Missing", ImmutablePojo.class.getName()),
+                    Runnable::run);
+
+            assertEquals("org.immutizer4j.test.sample.classfile.InitializerPojo.values : UNRESOLVABLE_TYPE",
+                    results.get(InitializerPojo.class.getName()).toString());
+            assertEquals("org.immutizer4j.test.Missing : UNRESOLVABLE_TYPE", results.get("org.immutizer4j.test.Missing").toString());
+            assertEquals(true, results.get(ImmutablePojo.class.getName()).isValid());
+        }
+    }
+
+    private static Path testClasses() {
+        try {
+            return Paths.get(ChildPojoReferencePojo.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Set<String> errors(ImmutableSet<ValidationError> errors) {
+        return errors.stream().map(Object::toString).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,126 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableList;
+import org.immutizer4j.ImmutabilityViolationException;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.test.sample.*;
+import org.immutizer4j.test.sample.generics.BadBoundGenericsContainer;
+import org.immutizer4j.test.sample.generics.BadConcreteGenericsContainer;
+import org.immutizer4j.test.sample.generics.NestedCollectionsPojo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for validating types from many threads at once
+ * @author Jacek Furmankiewicz
+ */
+public class ConcurrencyTests {
+
+    private static final int THREADS = 64;
+
+    /**
+     * All threads asking for the same uncached type at the same time should get the result of a single walk
+     */
+    @Test
+    public void testConcurrentColdStart() throws Exception {
+        Immutizer immutizer = new Immutizer();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ValidationResult>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return immutizer.getValidationResult(ArrayPojo.class);
+                }));
+            }
+            start.countDown();
+
+            ValidationResult first = futures.get(0).get(10, TimeUnit.SECONDS);
+            assertEquals(7, first.getErrors().size());
+            for (Future<ValidationResult> future : futures) {
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Batch validation should give exactly the same results as validating types one by one
+     */
+    @Test
+    public void testBatchValidationMatchesSequential() {
+        List<Class<?>> classes = ImmutableList.of(ArrayPojo.class, ChildPojoReferencePojo.class, ChildPojo.class,
+                ImmutablePojo.class, ImmutableCollectionWithMutableElementPojo.class, RegexPatternReferencePojo.class,
+                FinalParentWithNonFinalFieldsPojo.class, NonFinalFieldsPojo.class, ArrayPojo.class);
+
+        Immutizer sequential = new Immutizer();
+        Map<Class<?>,ValidationResult> results = new Immutizer().getValidationResults(classes);
+
+        assertEquals(ImmutableList.copyOf(new LinkedHashSet<>(classes)), ImmutableList.copyOf(results.keySet()));
+        for (Class<?> clazz : classes) {
+            assertEquals(sequential.getValidationResult(clazz), results.get(clazz));
+        }
+    }
+
+    /**
+     * Types shared between the graphs of a batch should be validated only once, even when walked in parallel
+     */
+    @Test
+    public void testBatchValidationWalksSharedTypesOnce() {
+        List<Class<?>> classes = ImmutableList.of(ArrayPojo.class, ImmutableArrayPojo.class, ImmutableCollectionWithMutableElementPojo.class,
+                NestedCollectionsPojo.class, BadConcreteGenericsContainer.class, BadBoundGenericsContainer.class);
+        List<Class<?>> reported = Collections.synchronizedList(new ArrayList<>());
+        Immutizer immutizer = Immutizer.builder().violationReporter((type, fieldName, violationType) -> reported.add(type)).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            immutizer.getValidationResults(classes, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5, Collections.frequency(reported, NonFinalFieldsPojo.class));
+    }
+
+    /**
+     * Failures during a batch should come out the same as from validating the types one by one
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testBatchValidationFailure() {
+        Immutizer immutizer = Immutizer.builder().violationReporter((type, fieldName, violationType) -> {
+            throw new IllegalStateException(fieldName);
+        }).build();
+        immutizer.getValidationResults(ImmutableList.of(ImmutablePojo.class, NonFinalFieldsPojo.class));
+    }
+
+    @Test
+    public void testBatchValidationOnCustomExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Immutizer immutizer = new Immutizer();
+            immutizer.verifyAll(ImmutableList.of(ImmutablePojo.class, ImmutableCollectionPojo.class), executor);
+
+            try {
+                immutizer.verifyAll(ImmutableList.of(ImmutablePojo.class, MutableCollectionPojo.class), executor);
+                fail("Expected violation");
+            } catch (ImmutabilityViolationException e) {
+                assertEquals("org.immutizer4j.test.sample.MutableCollectionPojo.listInt : MUTABLE_TYPE",
+                        e.getValidationResult().toString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
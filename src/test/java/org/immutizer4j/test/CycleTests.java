@@ -0,0 +1,57 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.test.sample.cycles.*;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for object graphs with circular references between types
+ * @author Jacek Furmankiewicz
+ */
+public class CycleTests {
+
+    private Immutizer defaultImmutizer = new Immutizer();
+
+    @Test
+    public void testIndirectCircularReference() {
+        ValidationResult result = defaultImmutizer.getValidationResult(CyclicA.class);
+
+        assertEquals(false, result.isValid());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("org.immutizer4j.test.sample.cycles.CyclicB.counter : NON_FINAL_FIELD", result.toString());
+
+        // the other type in the cycle was resolved in the same pass and has the same verdict
+        assertEquals(result, defaultImmutizer.getValidationResult(CyclicB.class));
+    }
+
+    @Test
+    public void testParentChildBackReferences() {
+        ValidationResult result = defaultImmutizer.getValidationResult(TreeNode.class);
+
+        assertEquals(true, result.isValid());
+    }
+
+    @Test
+    public void testMutableTypeStoredInCollectionOfItself() {
+        ValidationResult result = defaultImmutizer.getValidationResult(MutableTreeNode.class);
+
+        assertEquals(false, result.isValid());
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.cycles.MutableTreeNode.name : NON_FINAL_FIELD"));
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.cycles.MutableTreeNode.children : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+    }
+
+    @Test
+    public void testReferencesToCyclicGraphs() {
+        ValidationResult result = defaultImmutizer.getValidationResult(TreeNodeHolder.class);
+
+        assertEquals(false, result.isValid());
+        assertEquals("org.immutizer4j.test.sample.cycles.CyclicB.counter : NON_FINAL_FIELD", result.toString());
+    }
+}
@@ -0,0 +1,71 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.ImmutabilityViolationException;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.test.sample.ChildPojoReferencePojo;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the Flight Recorder events
+ * @author Jacek Furmankiewicz
+ */
+public class FlightRecorderTests {
+
+    @Test
+    public void testEventsRecorded() throws IOException {
+        Immutizer immutizer = Immutizer.builder().useValidationManifests(false).build();
+        Path file = Files.createTempFile("immutizer4j", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.immutizer4j.CacheMiss").withThreshold(Duration.ZERO);
+            recording.enable("org.immutizer4j.Walk").withThreshold(Duration.ZERO);
+            recording.enable("org.immutizer4j.Violation");
+            recording.start();
+
+            immutizer.getValidationResult(ImmutablePojo.class);
+            // cache hit, nothing recorded
+            immutizer.getValidationResult(ImmutablePojo.class);
+            try {
+                immutizer.verify(ChildPojoReferencePojo.class);
+            } catch (ImmutabilityViolationException e) {
+                // expected
+            }
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(2, count(events, "org.immutizer4j.CacheMiss"));
+            assertEquals(2, count(events, "org.immutizer4j.Walk"));
+            assertEquals(1, count(events, "org.immutizer4j.Violation"));
+
+            RecordedEvent walk = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.immutizer4j.Walk"))
+                    .filter(e -> e.getClass("type").getName().equals(ChildPojoReferencePojo.class.getName()))
+                    .findFirst().get();
+            assertEquals(5, walk.getInt("fieldCount"));
+            assertTrue(walk.getInt("errorCount") > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.counting());
+    }
+}
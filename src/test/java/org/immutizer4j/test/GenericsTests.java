@@ -5,8 +5,12 @@ import org.immutizer4j.ValidationResult;
 import org.immutizer4j.test.sample.ArrayPojo;
 import org.immutizer4j.test.sample.ImmutableArrayPojo;
 import org.immutizer4j.test.sample.ImmutableArrayTypePojo;
+import org.immutizer4j.test.sample.generics.BadBoundGenericsContainer;
 import org.immutizer4j.test.sample.generics.BadConcreteGenericsContainer;
+import org.immutizer4j.test.sample.generics.GenericsBase;
+import org.immutizer4j.test.sample.generics.GoodBoundGenericsContainer;
 import org.immutizer4j.test.sample.generics.GoodConcreteGenericsContainer;
+import org.immutizer4j.test.sample.generics.NestedCollectionsPojo;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -54,4 +58,41 @@ public class GenericsTests {
                 result.toString().contains("org.immutizer4j.test.sample.generics.GoodConcreteGenericsContainer.c : UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE"));
     }
 
+    @Test
+    public void testTypeVariablesBoundBySubclass() {
+        // nothing to go on in the base class itself
+        ValidationResult result = defaultImmutizer.getValidationResult(GenericsBase.class);
+        assertEquals(false,result.isValid());
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.GenericsBase.value : UNABLE_TO_DETERMINE_TYPE_DUE_TO_GENERICS_TYPE_ERASURE"));
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.GenericsBase.values : GENERIC_TYPE_WITH_WILDCARD"));
+
+        // but the sub classes tell us the actual type
+        assertEquals(true, defaultImmutizer.getValidationResult(GoodBoundGenericsContainer.class).isValid());
+
+        result = defaultImmutizer.getValidationResult(BadBoundGenericsContainer.class);
+        assertEquals(false,result.isValid());
+        assertEquals(6, result.getErrors().size());
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.NonFinalFieldsPojo.testInt : NON_FINAL_FIELD"));
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.GenericsBase.values : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+    }
+
+    @Test
+    public void testNestedCollections() {
+        ValidationResult result = defaultImmutizer.getValidationResult(NestedCollectionsPojo.class);
+
+        assertEquals(false,result.isValid());
+        assertEquals(3, result.getErrors().size());
+
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.NestedCollectionsPojo.mutableInnerCollection : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.NestedCollectionsPojo.mutableElement : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+        assertTrue(result.toString(),
+                result.toString().contains("org.immutizer4j.test.sample.generics.NestedCollectionsPojo.raw : GENERIC_TYPE_WITH_WILDCARD"));
+    }
+
 }
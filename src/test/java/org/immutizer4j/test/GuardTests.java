@@ -0,0 +1,159 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.immutizer4j.ImmutabilityViolationException;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the verifying in-memory cache, queue, executor and message handler decorators
+ * @author Jacek Furmankiewicz
+ */
+public class GuardTests {
+
+    private Immutizer defaultImmutizer = new Immutizer();
+
+    @Test
+    public void testImmutableEntriesGetIn() {
+        ConcurrentMap<String,ImmutablePojo> cache = defaultImmutizer.guard(new ConcurrentHashMap<>());
+        ImmutablePojo pojo = new ImmutablePojo(1, 1.0, "a");
+
+        cache.put("a", pojo);
+        cache.putIfAbsent("b", pojo);
+        cache.computeIfAbsent("c", k -> pojo);
+        cache.merge("a", pojo, (v1, v2) -> v2);
+        cache.putAll(ImmutableMap.of("d", pojo));
+
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testMutableEntriesRejected() {
+        ConcurrentMap<Object,Object> map = new ConcurrentHashMap<>();
+        ConcurrentMap<Object,Object> cache = defaultImmutizer.guard(map);
+        cache.put("a", "a");
+
+        assertRejected(() -> cache.put("b", new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.put(new NonFinalFieldsPojo(), "b"));
+        assertRejected(() -> cache.putIfAbsent("b", new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.replace("a", new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.compute("a", (k, v) -> new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.computeIfAbsent("b", k -> new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.merge("a", "b", (v1, v2) -> new NonFinalFieldsPojo()));
+        assertRejected(() -> cache.putAll(ImmutableMap.of("b", new NonFinalFieldsPojo())));
+
+        // nothing got in
+        assertEquals(ImmutableMap.of("a", "a"), map);
+    }
+
+    @Test
+    public void testPutAllWritesOnlyVerifiedEntries() {
+        ConcurrentMap<Object,Object> map = new ConcurrentHashMap<>();
+        ConcurrentMap<Object,Object> cache = defaultImmutizer.guard(map);
+
+        // a map that changes between being verified and being written
+        Map<Object,Object> changing = new ForwardingMap<Object,Object>() {
+            private Map<Object,Object> entries = ImmutableMap.of("a", "a");
+
+            @Override
+            protected Map<Object,Object> delegate() {
+                return entries;
+            }
+
+            @Override
+            public Set<Entry<Object,Object>> entrySet() {
+                Set<Entry<Object,Object>> read = entries.entrySet();
+                entries = ImmutableMap.of("a", new NonFinalFieldsPojo());
+                return read;
+            }
+        };
+        cache.putAll(changing);
+
+        assertEquals(ImmutableMap.of("a", "a"), map);
+    }
+
+    @Test
+    public void testQueue() throws InterruptedException {
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        BlockingQueue<Object> guarded = defaultImmutizer.guard(queue);
+        guarded.put(new ImmutablePojo(1, 1.0, "a"));
+        guarded.offer("b");
+        guarded.addAll(ImmutableList.of(1, 2));
+
+        assertRejected(() -> guarded.add(new NonFinalFieldsPojo()));
+        assertRejected(() -> guarded.offer(new NonFinalFieldsPojo()));
+        assertRejected(() -> guarded.addAll(ImmutableList.of("c", new NonFinalFieldsPojo())));
+
+        assertEquals(4, queue.size());
+        assertEquals(4, guarded.drainTo(new ArrayList<>()));
+    }
+
+    @Test
+    public void testExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = defaultImmutizer.guardExecutor(task -> tasks.add(task));
+
+        String text = "text";
+        executor.execute(() -> text.length());
+        StringBuilder builder = new StringBuilder();
+        assertRejected(() -> executor.execute(() -> builder.append(text)));
+
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testConsumer() {
+        List<Object> handled = new ArrayList<>();
+        Consumer<Object> consumer = defaultImmutizer.guardConsumer(message -> handled.add(message));
+        consumer.accept("a");
+        consumer.accept("b");
+        assertRejected(() -> consumer.accept(new NonFinalFieldsPojo()));
+
+        assertEquals(ImmutableList.of("a", "b"), handled);
+    }
+
+    @Test
+    public void testVerifyEach() {
+        List<Object> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new ImmutablePojo(i, i, "a"));
+            batch.add("a");
+        }
+        batch.add(null);
+        defaultImmutizer.verifyEach(batch);
+
+        batch.add(new NonFinalFieldsPojo());
+        assertRejected(() -> defaultImmutizer.verifyEach(batch));
+
+        // batch of a single class
+        assertRejected(() -> defaultImmutizer.verifyEach(Arrays.asList(new NonFinalFieldsPojo(), new NonFinalFieldsPojo())));
+    }
+
+    private static void assertRejected(Runnable write) {
+        try {
+            write.run();
+            fail("Mutable entry was let in");
+        } catch (ImmutabilityViolationException e) {
+            // expected
+        }
+    }
+}
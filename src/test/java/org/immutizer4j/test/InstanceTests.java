@@ -0,0 +1,94 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableList;
+import org.immutizer4j.ImmutabilityViolationException;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.ImmutablePojo2;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+import org.immutizer4j.test.sample.generics.GenericsContainer;
+import org.immutizer4j.test.sample.instance.SealedPojo;
+import org.immutizer4j.test.sample.instance.TextHolder;
+import org.immutizer4j.test.sample.instance.ValueHolder;
+import org.immutizer4j.test.sample.instance.ValuesHolder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for validating live instances, as opposed to just their types
+ * @author Jacek Furmankiewicz
+ */
+public class InstanceTests {
+
+    private Immutizer defaultImmutizer = new Immutizer();
+
+    @Test
+    public void testErasedGenericsResolvedFromInstance() {
+        assertEquals(false, defaultImmutizer.getValidationResult(GenericsContainer.class).isValid());
+
+        GenericsContainer<ImmutablePojo,ImmutablePojo2,String> good = new GenericsContainer<>(
+                new ImmutablePojo(1, 1.0, "a"), new ImmutablePojo2(2, 2.0, "b"), "c");
+        assertEquals(true, defaultImmutizer.getInstanceValidationResult(good).isValid());
+
+        GenericsContainer<ImmutablePojo,ImmutablePojo2,NonFinalFieldsPojo> bad = new GenericsContainer<>(
+                new ImmutablePojo(1, 1.0, "a"), new ImmutablePojo2(2, 2.0, "b"), new NonFinalFieldsPojo());
+        ValidationResult result = defaultImmutizer.getInstanceValidationResult(bad);
+        assertEquals(5, result.getErrors().size());
+        assertTrue(result.toString(), result.toString().contains("org.immutizer4j.test.sample.NonFinalFieldsPojo.testInt : NON_FINAL_FIELD"));
+    }
+
+    @Test
+    public void testInterfaceFieldResolvedFromInstance() {
+        // interfaces have no fields, so the type alone looks fine
+        assertEquals(true, defaultImmutizer.getValidationResult(TextHolder.class).isValid());
+
+        assertEquals(true, defaultImmutizer.getInstanceValidationResult(new TextHolder("text")).isValid());
+        assertEquals(false, defaultImmutizer.getInstanceValidationResult(new TextHolder(new StringBuilder("text"))).isValid());
+    }
+
+    @Test
+    public void testCollectionsResolvedFromInstance() {
+        ValidationResult result = defaultImmutizer.getInstanceValidationResult(new ValuesHolder(new ArrayList<>()));
+        assertEquals("org.immutizer4j.test.sample.instance.ValuesHolder.values : MUTABLE_TYPE", result.toString());
+
+        result = defaultImmutizer.getInstanceValidationResult(new ValuesHolder(ImmutableList.of("a", 1, new ImmutablePojo(1, 1.0, "a"))));
+        assertEquals(true, result.isValid());
+
+        // elements get checked like any other object
+        result = defaultImmutizer.getInstanceValidationResult(new ValuesHolder(ImmutableList.of("a", new NonFinalFieldsPojo())));
+        assertEquals(6, result.getErrors().size());
+        assertTrue(result.toString(), result.toString().contains("org.immutizer4j.test.sample.instance.ValuesHolder.values : MUTABLE_TYPE_STORED_IN_COLLECTION"));
+
+        // nested collections as well
+        result = defaultImmutizer.getInstanceValidationResult(ImmutableList.of(ImmutableList.of(new ValueHolder(new NonFinalFieldsPojo()))));
+        assertEquals(5, result.getErrors().size());
+    }
+
+    @Test
+    public void testCyclicInstances() {
+        Object[] array = new Object[1];
+        ValueHolder holder = new ValueHolder(array);
+        array[0] = holder;
+
+        assertEquals(true, new Immutizer(false).getInstanceValidationResult(holder).isValid());
+        assertEquals("org.immutizer4j.test.sample.instance.ValueHolder.value : MUTABLE_ARRAY",
+                defaultImmutizer.getInstanceValidationResult(holder).toString());
+    }
+
+    @Test
+    public void testSealedInstances() {
+        SealedPojo pojo = new SealedPojo("name", ImmutableList.of(new SealedPojo.TextPart("text", 0)));
+        assertEquals(true, defaultImmutizer.getInstanceValidationResult(pojo).isValid());
+        assertEquals(true, defaultImmutizer.getInstanceValidationResult("text").isValid());
+    }
+
+    @Test(expected = ImmutabilityViolationException.class)
+    public void testVerifyInstance() {
+        defaultImmutizer.verifyInstance(new ValueHolder(new NonFinalFieldsPojo()));
+    }
+}
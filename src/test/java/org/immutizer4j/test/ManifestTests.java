@@ -0,0 +1,159 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationManifest;
+import org.immutizer4j.test.sample.*;
+import org.immutizer4j.test.sample.cycles.CyclicA;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the verdicts precomputed during the build
+ * @author Jacek Furmankiewicz
+ */
+public class ManifestTests {
+
+    private static final List<Class<?>> CLASSES = ImmutableList.of(ImmutablePojo.class, NonFinalFieldsPojo.class,
+            ChildPojoReferencePojo.class, ImmutableCollectionWithMutableElementPojo.class, CyclicA.class);
+
+    private Immutizer immutizer = Immutizer.builder().useValidationManifests(false).build();
+
+    @Test
+    public void testVerdictsMatchRuntimeValidation() throws IOException {
+        ValidationManifest manifest = ValidationManifest.read(new ByteArrayInputStream(write()));
+
+        assertEquals(CLASSES.size(), manifest.size());
+        for(Class<?> clazz : CLASSES) {
+            assertEquals(immutizer.getValidationResult(clazz), manifest.get(clazz));
+        }
+        assertNull(manifest.get(ParentPojo.class));
+    }
+
+    @Test
+    public void testChangedClassFileMakesVerdictStale() throws Exception {
+        ValidationManifest manifest = ValidationManifest.read(new ByteArrayInputStream(write()));
+        assertNotNull(manifest.get(NonFinalFieldsPojo.class));
+
+        // same class, but the class file on the classpath is now different from the one the manifest was built from
+        Class<?> changed = new ChangedClassFileLoader(NonFinalFieldsPojo.class).loadClass(NonFinalFieldsPojo.class.getName());
+        assertNull(manifest.get(changed));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedManifestIsRejected() throws IOException {
+        byte[] bytes = write();
+        ValidationManifest.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testGarbageIsRejected() throws IOException {
+        ValidationManifest.read(new ByteArrayInputStream("definitely not a manifest".getBytes()));
+    }
+
+    /**
+     * A corrupted manifest on the classpath must never stop types from being validated
+     */
+    @Test
+    public void testCorruptedManifestOnClasspathFallsBackToWalk() throws Exception {
+        Path directory = Files.createTempDirectory("immutizer4j");
+        Path file = directory.resolve(ValidationManifest.LOCATION);
+        Files.createDirectories(file.getParent());
+        byte[] bytes = write();
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, original)) {
+            thread.setContextClassLoader(loader);
+            assertEquals(5, new Immutizer().getValidationResult(NonFinalFieldsPojo.class).getErrors().size());
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    @Test
+    public void testClassPathScannedOncePerClassLoader() throws IOException {
+        AtomicInteger scans = new AtomicInteger();
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[0], original) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                if (name.equals(ValidationManifest.LOCATION)) {
+                    scans.incrementAndGet();
+                }
+                return super.getResources(name);
+            }
+        }) {
+            thread.setContextClassLoader(loader);
+            new Immutizer();
+            new Immutizer(false);
+            assertEquals(1, scans.get());
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ValidationManifest.write(immutizer, CLASSES, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Defines the class from its original class file, but serves a different one from then on
+     */
+    private static class ChangedClassFileLoader extends ClassLoader {
+
+        private final Class<?> original;
+
+        ChangedClassFileLoader(Class<?> original) {
+            super(original.getClassLoader());
+            this.original = original;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(original.getName())) {
+                byte[] bytes = classFile();
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            if (name.equals(original.getName().replace('.', '/') + ".class")) {
+                byte[] bytes = classFile();
+                return new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length + 1));
+            }
+            return super.getResourceAsStream(name);
+        }
+
+        private byte[] classFile() {
+            try (InputStream in = getParent().getResourceAsStream(original.getName().replace('.', '/') + ".class")) {
+                return ByteStreams.toByteArray(in);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.CollectingValidationListener;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.TypeValidationMetrics;
+import org.immutizer4j.test.sample.ChildPojo;
+import org.immutizer4j.test.sample.ChildPojoReferencePojo;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the metrics of the type graph walks
+ * @author Jacek Furmankiewicz
+ */
+public class MetricsTests {
+
+    private CollectingValidationListener listener = new CollectingValidationListener();
+    private Immutizer immutizer = Immutizer.builder().useValidationManifests(false).validationListener(listener).build();
+
+    @Test
+    public void testWalkMetrics() {
+        immutizer.getValidationResult(ChildPojoReferencePojo.class);
+        assertEquals(1, listener.getMetrics().size());
+
+        TypeValidationMetrics metrics = listener.getMetrics().get(0);
+        assertEquals(ChildPojoReferencePojo.class, metrics.getType());
+        assertEquals(false, metrics.isValid());
+        // 1 field in the root type, 2 in the child type and 2 more in its parent
+        assertEquals(5, metrics.getFieldCount());
+        assertEquals(1, metrics.getNestedTypeCount());
+        assertEquals(1, metrics.getMaxDepth());
+        assertTrue(metrics.getWalkNanos() > 0);
+    }
+
+    @Test
+    public void testKnownVerdictsAreNotWalked() {
+        immutizer.getValidationResult(ChildPojoReferencePojo.class);
+        // cached while walking the previous one
+        immutizer.getValidationResult(ChildPojo.class);
+        // safe type
+        immutizer.getValidationResult(String.class);
+        assertEquals(1, listener.getMetrics().size());
+
+        immutizer.getValidationResult(ImmutablePojo.class);
+        assertEquals(2, listener.getMetrics().size());
+        assertEquals(0, listener.getMetrics().get(1).getMaxDepth());
+        assertEquals(1, listener.getSlowest(1).size());
+
+        // hits and misses are tracked by the cache (safe types are a miss the first time too)
+        assertEquals(1, immutizer.getCacheStats().getHitCount());
+        assertEquals(3, immutizer.getCacheStats().getMissCount());
+    }
+}
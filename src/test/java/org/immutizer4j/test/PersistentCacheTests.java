@@ -0,0 +1,148 @@
+package org.immutizer4j.test;
+
+import com.google.common.collect.ImmutableList;
+import org.immutizer4j.CollectingValidationListener;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationManifest;
+import org.immutizer4j.test.sample.*;
+import org.immutizer4j.test.sample.cycles.CyclicA;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the verdicts kept on disk between restarts
+ * @author Jacek Furmankiewicz
+ */
+public class PersistentCacheTests {
+
+    private static final List<Class<?>> CLASSES = ImmutableList.of(ArrayPojo.class, ImmutablePojo.class,
+            ChildPojoReferencePojo.class, ImmutableCollectionWithMutableElementPojo.class, CyclicA.class);
+
+    private Immutizer defaultImmutizer = Immutizer.builder().useValidationManifests(false).build();
+    private Path directory;
+    private Path file;
+    private Path alternate;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("immutizer4j");
+        file = directory.resolve("verdicts.bin");
+        alternate = directory.resolve("verdicts.bin.alt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(alternate);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testVerdictsSurviveRestart() throws IOException {
+        Immutizer first = persistent(true);
+        first.getValidationResults(CLASSES);
+        first.savePersistentCache();
+
+        // nested types reached during the walks get saved as well
+        try (InputStream in = Files.newInputStream(file)) {
+            ValidationManifest saved = ValidationManifest.read(in);
+            for(Class<?> clazz : CLASSES) {
+                assertEquals(defaultImmutizer.getValidationResult(clazz), saved.get(clazz));
+            }
+            assertEquals(defaultImmutizer.getValidationResult(ChildPojo.class), saved.get(ChildPojo.class));
+        }
+
+        Immutizer restarted = persistent(true);
+        for(Class<?> clazz : CLASSES) {
+            assertEquals(defaultImmutizer.getValidationResult(clazz), restarted.getValidationResult(clazz));
+        }
+    }
+
+    @Test
+    public void testSaveKeepsVerdictsFromPreviousRun() throws IOException {
+        Immutizer first = persistent(true);
+        first.getValidationResult(ArrayPojo.class);
+        first.savePersistentCache();
+
+        // only the new type gets walked, the old verdict is carried over
+        Immutizer second = persistent(true);
+        second.getValidationResult(ArrayPojo.class);
+        second.getValidationResult(ImmutablePojo.class);
+        second.savePersistentCache();
+
+        CollectingValidationListener listener = new CollectingValidationListener();
+        Immutizer third = Immutizer.builder().useValidationManifests(false).persistentCache(file).validationListener(listener).build();
+        assertEquals(defaultImmutizer.getValidationResult(ArrayPojo.class), third.getValidationResult(ArrayPojo.class));
+        assertEquals(defaultImmutizer.getValidationResult(ImmutablePojo.class), third.getValidationResult(ImmutablePojo.class));
+        assertEquals(0, listener.getMetrics().size());
+    }
+
+    @Test
+    public void testSaveNeverReplacesMappedFile() throws IOException {
+        Immutizer first = persistent(true);
+        first.getValidationResult(ArrayPojo.class);
+        first.savePersistentCache();
+        byte[] mapped = Files.readAllBytes(file);
+
+        // goes to the alternate file, the mapped one can be locked (e.g. on Windows)
+        Immutizer second = persistent(true);
+        second.getValidationResult(ImmutablePojo.class);
+        second.savePersistentCache();
+        assertArrayEquals(mapped, Files.readAllBytes(file));
+        assertTrue(Files.exists(alternate));
+
+        // and the next start maps the newer one, then writes over the older one
+        Immutizer third = persistent(true);
+        third.getValidationResult(ChildPojo.class);
+        third.savePersistentCache();
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(defaultImmutizer.getValidationResult(ImmutablePojo.class), ValidationManifest.read(in).get(ImmutablePojo.class));
+        }
+    }
+
+    @Test
+    public void testVerdictsWithDifferentSettingsAreIgnored() throws IOException {
+        Immutizer strict = persistent(true);
+        assertEquals(7, strict.getValidationResult(ArrayPojo.class).getErrors().size());
+        strict.savePersistentCache();
+
+        // arrays are fine in non strict mode, the strict verdict must not be used
+        Immutizer nonStrict = persistent(false);
+        assertEquals(new Immutizer(false).getValidationResult(ArrayPojo.class), nonStrict.getValidationResult(ArrayPojo.class));
+        assertEquals(5, nonStrict.getValidationResult(ArrayPojo.class).getErrors().size());
+    }
+
+    @Test
+    public void testCorruptedFileFallsBackToWalk() throws IOException {
+        Files.write(file, "definitely not a verdict file".getBytes());
+
+        Immutizer immutizer = persistent(true);
+        assertEquals(5, immutizer.getValidationResult(NonFinalFieldsPojo.class).getErrors().size());
+
+        // and gets replaced by a good one
+        immutizer.savePersistentCache();
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(1, ValidationManifest.read(in).size());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSaveRequiresPersistentCache() throws IOException {
+        new Immutizer().savePersistentCache();
+    }
+
+    private Immutizer persistent(boolean strict) {
+        return Immutizer.builder().strict(strict).useValidationManifests(false).persistentCache(file).build();
+    }
+}
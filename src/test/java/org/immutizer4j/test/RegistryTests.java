@@ -0,0 +1,34 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.test.sample.registry.RegisteredPojo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for types verified at compile time by the annotation processor
+ * @author Jacek Furmankiewicz
+ */
+public class RegistryTests {
+
+    @Test
+    public void testRegisteredTypesAreTrusted() {
+        ValidationResult result = new Immutizer().getValidationResult(RegisteredPojo.class);
+        assertEquals(true, result.isValid());
+
+        // registry verified in strict mode is good enough for the non-strict mode as well
+        result = new Immutizer(false).getValidationResult(RegisteredPojo.class);
+        assertEquals(true, result.isValid());
+    }
+
+    @Test
+    public void testRegistriesCanBeIgnored() {
+        Immutizer immutizer = Immutizer.builder().useVerifiedTypeRegistries(false).build();
+
+        ValidationResult result = immutizer.getValidationResult(RegisteredPojo.class);
+        assertEquals(false, result.isValid());
+        assertEquals("org.immutizer4j.test.sample.registry.RegisteredPojo.mutableInt : NON_FINAL_FIELD", result.toString());
+    }
+}
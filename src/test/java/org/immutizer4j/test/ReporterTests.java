@@ -0,0 +1,63 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.CollectingViolationReporter;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.ValidationError;
+import org.immutizer4j.ValidationResult;
+import org.immutizer4j.ViolationReporter;
+import org.immutizer4j.ViolationType;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the pluggable reporting of violations
+ * @author Jacek Furmankiewicz
+ */
+public class ReporterTests {
+
+    @Test
+    public void testCollectingReporter() {
+        CollectingViolationReporter reporter = new CollectingViolationReporter();
+        Immutizer immutizer = Immutizer.builder().violationReporter(reporter).build();
+
+        ValidationResult result = immutizer.getValidationResult(NonFinalFieldsPojo.class);
+        assertEquals(5, reporter.getErrors().size());
+        assertEquals(result.getErrors().size(), reporter.getErrors().size());
+        assertEquals(new ValidationError(NonFinalFieldsPojo.class, "testInt", ViolationType.NON_FINAL_FIELD), reporter.getErrors().get(0));
+
+        // cached results do not get reported again
+        immutizer.getValidationResult(NonFinalFieldsPojo.class);
+        immutizer.getValidationResult(ImmutablePojo.class);
+        assertEquals(5, reporter.getErrors().size());
+
+        reporter.clear();
+        assertEquals(0, reporter.getErrors().size());
+    }
+
+    @Test
+    public void testNoReporter() {
+        Immutizer immutizer = Immutizer.builder().violationReporter(ViolationReporter.NONE).build();
+
+        // results are the same, just nothing gets logged
+        assertEquals(new Immutizer().getValidationResult(NonFinalFieldsPojo.class), immutizer.getValidationResult(NonFinalFieldsPojo.class));
+    }
+
+    @Test
+    public void testCustomReporter() {
+        AtomicInteger count = new AtomicInteger();
+        Immutizer immutizer = Immutizer.builder().violationReporter((type, fieldName, violationType) -> count.incrementAndGet()).build();
+
+        // found by the walk of the class, then again by the instance check reading its fields
+        immutizer.getInstanceValidationResult(new NonFinalFieldsPojo());
+        assertEquals(10, count.get());
+
+        // both are cached from then on
+        immutizer.getInstanceValidationResult(new NonFinalFieldsPojo());
+        assertEquals(10, count.get());
+    }
+}
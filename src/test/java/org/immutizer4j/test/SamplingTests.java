@@ -0,0 +1,99 @@
+package org.immutizer4j.test;
+
+import org.immutizer4j.ImmutabilityViolationException;
+import org.immutizer4j.Immutizer;
+import org.immutizer4j.SampledValidationResult;
+import org.immutizer4j.SampledVerifier;
+import org.immutizer4j.SamplingStats;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+import org.immutizer4j.test.sample.instance.ValueHolder;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the sampled and time budgeted instance verification
+ * @author Jacek Furmankiewicz
+ */
+public class SamplingTests {
+
+    private Immutizer defaultImmutizer = new Immutizer();
+
+    @Test
+    public void testEveryNth() {
+        SampledVerifier verifier = SampledVerifier.builder(defaultImmutizer).everyNth(10).build();
+
+        // the first one always gets checked
+        assertEquals(true, verifier.check(new ValueHolder(new NonFinalFieldsPojo())).isChecked());
+        for (int i = 1; i < 100; i++) {
+            verifier.check(new ValueHolder(new ImmutablePojo(i, i, "a")));
+        }
+
+        SamplingStats stats = verifier.getStats();
+        assertEquals(10, stats.getCheckedCount());
+        assertEquals(90, stats.getSkippedCount());
+        assertEquals(1, stats.getViolationCount());
+        assertEquals(0, stats.getIncompleteCount());
+        assertEquals(0.1, stats.coverage(), 0.001);
+    }
+
+    @Test
+    public void testFraction() {
+        SampledVerifier verifier = SampledVerifier.builder(defaultImmutizer).fraction(0.5).build();
+        for (int i = 0; i < 10_000; i++) {
+            verifier.check(new ImmutablePojo(i, i, "a"));
+        }
+
+        SamplingStats stats = verifier.getStats();
+        assertEquals(10_000, stats.getCheckedCount() + stats.getSkippedCount());
+        assertTrue(String.valueOf(stats.getCheckedCount()), stats.getCheckedCount() > 4_000 && stats.getCheckedCount() < 6_000);
+    }
+
+    @Test
+    public void testRateLimit() {
+        SampledVerifier verifier = SampledVerifier.builder(defaultImmutizer).maxChecksPerSecond(1).build();
+        for (int i = 0; i < 10; i++) {
+            verifier.check(new ImmutablePojo(i, i, "a"));
+        }
+
+        assertEquals(1, verifier.getStats().getCheckedCount());
+        assertEquals(9, verifier.getStats().getSkippedCount());
+    }
+
+    @Test
+    public void testZeroBudgetVisitsNothing() {
+        Object[] values = new Object[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ValueHolder(new NonFinalFieldsPojo());
+        }
+        ValueHolder holder = new ValueHolder(values);
+
+        // no budget at all, the clock is checked before the first visit
+        SampledVerifier verifier = SampledVerifier.builder(new Immutizer(false)).budget(0, TimeUnit.NANOSECONDS).build();
+        SampledValidationResult result = verifier.check(holder);
+
+        assertEquals(true, result.isChecked());
+        assertEquals(false, result.isComplete());
+        assertEquals(0, result.getValidationResult().getErrors().size());
+        assertEquals(1, verifier.getStats().getIncompleteCount());
+
+        // not even the root gets looked at
+        result = verifier.check(new NonFinalFieldsPojo());
+        assertEquals(false, result.isComplete());
+        assertEquals(true, result.isValid());
+
+        // and the full check gets to the end
+        result = SampledVerifier.builder(new Immutizer(false)).build().check(holder);
+        assertEquals(true, result.isComplete());
+        assertEquals(5, result.getValidationResult().getErrors().size());
+    }
+
+    @Test(expected = ImmutabilityViolationException.class)
+    public void testVerify() {
+        SampledVerifier.builder(defaultImmutizer).build().verify(new ValueHolder(new NonFinalFieldsPojo()));
+    }
+}
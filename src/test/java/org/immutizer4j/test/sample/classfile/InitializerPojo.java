@@ -0,0 +1,21 @@
+package org.immutizer4j.test.sample.classfile;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+
+/**
+ * POJO whose static initializer must never run during validation
+ */
+@Value
+public class InitializerPojo {
+
+    static {
+        if (Boolean.TRUE) {
+            throw new IllegalStateException("Class got initialized");
+        }
+    }
+
+    private String name;
+    private ImmutableList<NonFinalFieldsPojo> values;
+}
@@ -0,0 +1,12 @@
+package org.immutizer4j.test.sample.cycles;
+
+import lombok.Value;
+
+/**
+ * Indirect circular reference, CyclicA -> CyclicB -> CyclicA
+ */
+@Value
+public class CyclicA {
+    private String name;
+    private CyclicB b;
+}
@@ -0,0 +1,12 @@
+package org.immutizer4j.test.sample.cycles;
+
+import lombok.Data;
+
+/**
+ * Other half of the indirect circular reference, with a mutable field that affects both sides
+ */
+@Data
+public class CyclicB {
+    private final CyclicA a;
+    private int counter;
+}
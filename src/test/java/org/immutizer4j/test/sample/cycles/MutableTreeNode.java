@@ -0,0 +1,13 @@
+package org.immutizer4j.test.sample.cycles;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Data;
+
+/**
+ * Tree that refers to its children only via a collection, with a mutable field
+ */
+@Data
+public class MutableTreeNode {
+    private final ImmutableList<MutableTreeNode> children;
+    private String name;
+}
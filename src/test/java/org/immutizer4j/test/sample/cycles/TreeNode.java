@@ -0,0 +1,14 @@
+package org.immutizer4j.test.sample.cycles;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+
+/**
+ * Immutable tree with parent/child back-references
+ */
+@Value
+public class TreeNode {
+    private String name;
+    private TreeNode parent;
+    private ImmutableList<TreeNode> children;
+}
@@ -0,0 +1,12 @@
+package org.immutizer4j.test.sample.cycles;
+
+import lombok.Value;
+
+/**
+ * Refers to both an immutable and a mutable cyclic graph
+ */
+@Value
+public class TreeNodeHolder {
+    private TreeNode tree;
+    private CyclicA cyclic;
+}
@@ -0,0 +1,13 @@
+package org.immutizer4j.test.sample.generics;
+
+import com.google.common.collect.ImmutableList;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+
+/**
+ * Binds the type variable of the base class to a mutable type
+ */
+public final class BadBoundGenericsContainer extends GenericsBase<NonFinalFieldsPojo> {
+    public BadBoundGenericsContainer(NonFinalFieldsPojo value, ImmutableList<NonFinalFieldsPojo> values) {
+        super(value, values);
+    }
+}
@@ -0,0 +1,15 @@
+package org.immutizer4j.test.sample.generics;
+
+import com.google.common.collect.ImmutableList;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Generic base class, its type variable gets bound by the concrete sub classes
+ */
+@Getter
+@AllArgsConstructor
+public abstract class GenericsBase<T> {
+    private final T value;
+    private final ImmutableList<T> values;
+}
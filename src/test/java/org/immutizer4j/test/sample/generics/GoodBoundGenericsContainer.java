@@ -0,0 +1,13 @@
+package org.immutizer4j.test.sample.generics;
+
+import com.google.common.collect.ImmutableList;
+import org.immutizer4j.test.sample.ImmutablePojo;
+
+/**
+ * Binds the type variable of the base class to an immutable type, so it is valid
+ */
+public final class GoodBoundGenericsContainer extends GenericsBase<ImmutablePojo> {
+    public GoodBoundGenericsContainer(ImmutablePojo value, ImmutableList<ImmutablePojo> values) {
+        super(value, values);
+    }
+}
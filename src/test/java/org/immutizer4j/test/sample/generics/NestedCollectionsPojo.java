@@ -0,0 +1,21 @@
+package org.immutizer4j.test.sample.generics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import lombok.Value;
+import org.immutizer4j.test.sample.ImmutablePojo;
+import org.immutizer4j.test.sample.NonFinalFieldsPojo;
+
+import java.util.List;
+
+/**
+ * Collections stored in other collections
+ */
+@Value
+public class NestedCollectionsPojo {
+    private ImmutableList<ImmutableSet<ImmutablePojo>> immutable;
+    private ImmutableList<List<ImmutablePojo>> mutableInnerCollection;
+    private ImmutableList<ImmutableSet<NonFinalFieldsPojo>> mutableElement;
+    @SuppressWarnings("rawtypes")
+    private ImmutableList raw;
+}
@@ -0,0 +1,19 @@
+package org.immutizer4j.test.sample.instance;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+
+/**
+ * Final, with final types all the way down. Nothing to find out from instances
+ */
+@Value
+public class SealedPojo {
+    private String name;
+    private ImmutableList<TextPart> parts;
+
+    @Value
+    public static class TextPart {
+        private String text;
+        private int position;
+    }
+}
@@ -0,0 +1,11 @@
+package org.immutizer4j.test.sample.instance;
+
+import lombok.Value;
+
+/**
+ * Interfaces have no fields, so at the type level this looks immutable even when it holds a StringBuilder
+ */
+@Value
+public class TextHolder {
+    private CharSequence text;
+}
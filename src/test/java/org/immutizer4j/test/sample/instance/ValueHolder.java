@@ -0,0 +1,11 @@
+package org.immutizer4j.test.sample.instance;
+
+import lombok.Value;
+
+/**
+ * Holds anything, only the instance can tell if it is immutable
+ */
+@Value
+public class ValueHolder {
+    private Object value;
+}
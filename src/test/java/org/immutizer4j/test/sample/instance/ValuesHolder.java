@@ -0,0 +1,13 @@
+package org.immutizer4j.test.sample.instance;
+
+import lombok.Value;
+
+import java.util.Collection;
+
+/**
+ * Collection that may or may not be immutable
+ */
+@Value
+public class ValuesHolder {
+    private Collection<Object> values;
+}
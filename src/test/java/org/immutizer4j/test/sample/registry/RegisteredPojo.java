@@ -0,0 +1,12 @@
+package org.immutizer4j.test.sample.registry;
+
+import lombok.Data;
+
+/**
+ * Registered as verified, even though it is not immutable.
+ * Used for testing that registered types are never walked at runtime
+ */
+@Data
+public class RegisteredPojo {
+    private int mutableInt;
+}
@@ -0,0 +1,27 @@
+package org.immutizer4j.test.sample.registry;
+
+import com.google.common.collect.ImmutableSet;
+import org.immutizer4j.VerifiedTypeRegistry;
+
+import java.util.Set;
+
+/**
+ * Stands in for a registry generated by the annotation processor
+ */
+public class SampleRegistry implements VerifiedTypeRegistry {
+
+    @Override
+    public Set<String> getVerifiedTypes() {
+        return ImmutableSet.of(RegisteredPojo.class.getName());
+    }
+
+    @Override
+    public boolean isStrict() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getSafeTypes() {
+        return ImmutableSet.of();
+    }
+}